@@ -0,0 +1,32 @@
+package executionparameters;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+import static executionparameters.Parameters.*;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ParameterParserBenchmark {
+    private static final String[] COMMAND_LINE_ARGUMENTS = {
+            VERACODE_ID_SIMPLIFIED_ARGUMENT, "0123456789abcdef0123456789abcdef",
+            VERACODE_KEY_SIMPLIFIED_ARGUMENT, "0123456789abcdef0123456789abcdef",
+            VERACODE_USERNAME_FULL_ARGUMENT, "user@example.com",
+            VERACODE_PASSWORD_FULL_ARGUMENT, "password",
+            SELENIUM_DRIVER_NAME_SIMPLIFIED_ARGUMENT, "webdriver.gecko.driver",
+            SELENIUM_DRIVER_LOCATION_SIMPLIFIED_ARGUMENT, "/usr/local/bin/geckodriver",
+            BRANCH_NAME_SIMPLIFIED_ARGUMENT, "main",
+            BROWSER_WORKERS_FULL_ARGUMENT, "4"
+    };
+
+    @Benchmark
+    public String parseAndRead() {
+        ParameterParser parameterParser = new ParameterParser(COMMAND_LINE_ARGUMENTS);
+        return parameterParser.getParameterAsString(BRANCH_NAME_FULL_ARGUMENT, BRANCH_NAME_SIMPLIFIED_ARGUMENT);
+    }
+}
@@ -0,0 +1,68 @@
+package selenium;
+
+import org.openjdk.jmh.infra.BenchmarkParams;
+import org.openjdk.jmh.infra.IterationParams;
+import org.openjdk.jmh.profile.InternalProfiler;
+import org.openjdk.jmh.results.AggregationPolicy;
+import org.openjdk.jmh.results.IterationResult;
+import org.openjdk.jmh.results.Result;
+import org.openjdk.jmh.results.ScalarResult;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/*
+ * Resident memory of every process started by the benchmark JVM (the driver, the browser and its content
+ * processes), read from /proc at the end of each iteration. Reports nothing where /proc is not available.
+ */
+public class BrowserMemoryProfiler implements InternalProfiler {
+    private static final String RESIDENT_MEMORY_FIELD = "VmRSS:";
+
+    @Override
+    public String getDescription() {
+        return "Resident memory of the browser processes, Linux only";
+    }
+
+    @Override
+    public void beforeIteration(BenchmarkParams benchmarkParams, IterationParams iterationParams) {
+    }
+
+    @Override
+    @SuppressWarnings("rawtypes")
+    public Collection<? extends Result> afterIteration(BenchmarkParams benchmarkParams,
+                                                       IterationParams iterationParams,
+                                                       IterationResult iterationResult) {
+        if (!Files.isDirectory(Paths.get("/proc/self"))) {
+            return Collections.emptyList();
+        }
+        long residentKilobytes = ProcessHandle.current().descendants()
+                .mapToLong(process -> readResidentKilobytes(process.pid()))
+                .sum();
+        return Collections.singletonList(
+                new ScalarResult("browser.rss", residentKilobytes / 1024.0, "MB", AggregationPolicy.MAX));
+    }
+
+    /*
+     * A process that exited in the meantime counts as zero.
+     */
+    private static long readResidentKilobytes(long pid) {
+        Path statusPath = Paths.get("/proc", String.valueOf(pid), "status");
+        try {
+            List<String> statusLines = Files.readAllLines(statusPath);
+            for (String statusLine : statusLines) {
+                if (statusLine.startsWith(RESIDENT_MEMORY_FIELD)) {
+                    return Long.parseLong(statusLine.substring(RESIDENT_MEMORY_FIELD.length())
+                            .replace("kB", "").trim());
+                }
+            }
+        } catch (IOException | NumberFormatException e) {
+            //process is gone or its status cannot be read
+        }
+        return 0;
+    }
+}
@@ -0,0 +1,60 @@
+package selenium;
+
+import org.openjdk.jmh.annotations.*;
+import org.openqa.selenium.WebDriver;
+
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Load time of the login page with the default and the lean browser profile, one browser per trial.
+ * Needs a Selenium driver, so it is left out of the default run and started on its own, with the resident memory
+ * of the browser processes reported by BrowserMemoryProfiler:
+ * -Djmh.args="BrowserProfile -p driverName=webdriver.gecko.driver -p driverLocation=/path/to/geckodriver -prof selenium.BrowserMemoryProfiler"
+ * The login page needs no session, so this is not the load time of a project page. The two share the application
+ * bundle, which is what the lean profile trims, but project pages also wait on their API calls.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1, time = 20)
+@Measurement(iterations = 3, time = 30)
+@Fork(1)
+public class BrowserProfileBenchmark {
+    @Param({"false", "true"})
+    public boolean isLeanProfile;
+
+    @Param({"webdriver.gecko.driver"})
+    public String driverName;
+
+    @Param({""})
+    public String driverLocation;
+
+    @Param({"https://web.analysiscenter.veracode.com/login/"})
+    public String pageUrl;
+
+    private WebDriver webDriver;
+
+    @Setup(Level.Trial)
+    public void startBrowser() {
+        if (driverLocation.isEmpty()) {
+            throw new IllegalArgumentException("Pass the Selenium driver location with -p driverLocation=...");
+        }
+        System.setProperty(driverName, driverLocation);
+        WebDriverProvider.isHeadless = true;
+        WebDriverProvider.isLeanProfile = isLeanProfile;
+        webDriver = WebDriverProvider.getDriver(driverName);
+    }
+
+    @TearDown(Level.Trial)
+    public void stopBrowser() {
+        if (webDriver != null) {
+            webDriver.quit();
+        }
+    }
+
+    @Benchmark
+    public String loadPage() {
+        webDriver.get(pageUrl);
+        return webDriver.getTitle();
+    }
+}
@@ -0,0 +1,42 @@
+package util;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.security.InvalidKeyException;
+import java.security.NoSuchAlgorithmException;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Signing cost on a single thread and with every available core signing at once.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class HmacRequestSignerBenchmark {
+    private ApiCredentials apiCredentials;
+    private URL url;
+
+    @Setup(Level.Trial)
+    public void createCredentials() throws MalformedURLException {
+        apiCredentials = new ApiCredentials("0123456789abcdef0123456789abcdef",
+                "0123456789abcdef0123456789abcdef0123456789abcdef0123456789abcdef0123456789abcdef0123456789abcdef0123456789abcdef0123456789abcdef");
+        url = new URL("https://api.veracode.com/srcclr/v3/workspaces/00000000-aaaa-bbbb-cccc-dddddddddddd/projects?size=500");
+    }
+
+    @Benchmark
+    @Threads(1)
+    public String singleThread() throws InvalidKeyException, NoSuchAlgorithmException {
+        return HmacRequestSigner.getVeracodeAuthorizationHeader(apiCredentials, url, "GET");
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public String allThreads() throws InvalidKeyException, NoSuchAlgorithmException {
+        return HmacRequestSigner.getVeracodeAuthorizationHeader(apiCredentials, url, "GET");
+    }
+}
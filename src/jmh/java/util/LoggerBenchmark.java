@@ -0,0 +1,53 @@
+package util;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Logging cost with the console replaced by a discarding stream, so only the logger itself is measured.
+ * Callers only pay for queueing the message, the writer thread formats and prints it.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LoggerBenchmark {
+    private static final String MULTI_LINE_MESSAGE = "Couldn't find branch named main for project: project\n" +
+            "Found the following options: develop, release, feature/one, feature/two\n" +
+            "Currently on URL: https://sca.analysiscenter.veracode.com/workspaces/1/projects/2/issues";
+
+    private PrintStream originalOutput;
+
+    @Setup(Level.Trial)
+    public void discardOutput() {
+        originalOutput = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        Logger.isDebug = false;
+    }
+
+    @TearDown(Level.Trial)
+    public void restoreOutput() {
+        Logger.flush();
+        System.setOut(originalOutput);
+    }
+
+    @Benchmark
+    public void singleLine() {
+        Logger.log("Successfully set default branch to 'main' for project: workspace->project");
+    }
+
+    @Benchmark
+    public void multiLine() {
+        Logger.log(MULTI_LINE_MESSAGE);
+    }
+
+    @Benchmark
+    public void disabledDebug() {
+        Logger.debug("Reading Parameter: %s with value %s", "--branch_name", "main");
+    }
+}
@@ -0,0 +1,72 @@
+package util.apihandlers;
+
+import org.apache.sling.commons.json.JSONException;
+import org.apache.sling.commons.json.JSONObject;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import util.Project;
+import util.Workspace;
+
+import java.io.ByteArrayInputStream;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Compares mapping a project page from a sling JSONObject tree with pull-parsing it from the raw bytes.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JsonHandlerBenchmark {
+    @Param({"500", "50000"})
+    private int projectCount;
+
+    private String payload;
+    private byte[] payloadBytes;
+    private URL pageUrl;
+    private Workspace workspace;
+
+    @Setup(Level.Trial)
+    public void createPayload() throws MalformedURLException {
+        StringBuilder projects = new StringBuilder();
+        for (int currentProject = 0; currentProject < projectCount; currentProject++) {
+            if (currentProject > 0) {
+                projects.append(',');
+            }
+            projects.append("{\"id\":\"").append(String.format("%08d-aaaa-bbbb-cccc-dddddddddddd", currentProject))
+                    .append("\",\"site_id\":").append(100000 + currentProject)
+                    .append(",\"name\":\"organization/project-").append(currentProject)
+                    .append("\",\"languages\":[\"").append(currentProject % 10 == 0 ? "OS" : "Java")
+                    .append("\"],\"last_scan_date\":\"2022-01-01T00:00:00.000+0000\",")
+                    .append("\"_links\":{\"self\":{\"href\":\"https://api.veracode.com/srcclr/v3/projects/")
+                    .append(currentProject).append("\"}}}");
+        }
+        payload = "{\"_embedded\":{\"projects\":[" + projects + "]}," +
+                "\"_links\":{\"self\":{\"href\":\"https://api.veracode.com/srcclr/v3/workspaces/w/projects\"}}," +
+                "\"page\":{\"size\":" + projectCount + ",\"totalElements\":" + projectCount +
+                ",\"totalPages\":1,\"number\":0}}";
+        payloadBytes = payload.getBytes(StandardCharsets.UTF_8);
+        pageUrl = new URL("https://api.veracode.com/srcclr/v3/workspaces/w/projects?size=500");
+        workspace = new Workspace("w", "1", "Workspace", new ArrayList<>());
+    }
+
+    @Benchmark
+    public Optional<List<Project>> jsonObjectTree() throws JSONException {
+        return JsonHandler.getProjectsFromUrl(new JSONObject(payload), workspace);
+    }
+
+    @Benchmark
+    public void streamedPage(Blackhole blackhole) {
+        StreamedPage<Project> page = new StreamedPage<>(pageUrl, new ByteArrayInputStream(payloadBytes),
+                "projects", jsonParser -> JsonHandler.readProject(jsonParser, workspace));
+        page.forEachRemaining(blackhole::consume);
+    }
+}
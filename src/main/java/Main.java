@@ -1,37 +1,163 @@
 import executionparameters.ExecutionParameters;
+import executionparameters.MergeParameters;
+import selenium.JournalMerger;
 import selenium.ScaProjectUpdater;
+import util.InventorySnapshot;
 import util.Logger;
+import util.Project;
 import util.Workspace;
 import util.apihandlers.ApiCaller;
+import util.apihandlers.ProjectEnumerator;
+import util.metrics.Metrics;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
 
 public class Main {
 
     public static void main(String[] args) {
-        ExecutionParameters.of(args).ifPresent(Main::execute);
+        try {
+            Optional<MergeParameters> mergeParameters = MergeParameters.of(args);
+            if (mergeParameters.isPresent()) {
+                JournalMerger.merge(mergeParameters.get());
+            } else {
+                ExecutionParameters.of(args).ifPresent(Main::execute);
+            }
+        } finally {
+            Logger.flush();
+        }
     }
 
     private static void execute(ExecutionParameters executionParameters) {
+        InventorySnapshot previousSnapshot = executionParameters.getInventorySnapshotPath()
+                .flatMap(Main::loadInventorySnapshot)
+                .orElseGet(InventorySnapshot::new);
+        ProjectEnumerator projectEnumerator = new ProjectEnumerator(executionParameters.getApiCredentials(),
+                executionParameters.getEnumerationParallelism(), previousSnapshot);
+        List<Workspace> workspaceList = new ArrayList<>();
+
+        try (ScaProjectUpdater scaProjectUpdater = new ScaProjectUpdater(executionParameters)) {
+            scaProjectUpdater.updateDefaultBranches(workspaceConsumer -> workspaceList.addAll(
+                            gatherWorkspaces(executionParameters, projectEnumerator, workspaceConsumer)),
+                    executionParameters.getBranchName());
+            if (executionParameters.getWatchInterval().isPresent()) {
+                executionParameters.getMetricsOutputPath().ifPresent(Metrics::export);
+                watch(executionParameters, scaProjectUpdater, workspaceList, projectEnumerator.getCurrentSnapshot());
+            }
+        } catch (TimeoutException e) {
+            throw new RuntimeException(e);
+        } finally {
+            executionParameters.getMetricsOutputPath().ifPresent(Metrics::export);
+        }
+    }
+
+    /*
+     * Every workspace is handed to onWorkspaceReady as soon as its projects are known.
+     */
+    private static List<Workspace> gatherWorkspaces(ExecutionParameters executionParameters,
+                                                    ProjectEnumerator projectEnumerator,
+                                                    Consumer<Workspace> onWorkspaceReady) {
         Logger.log("Gathering workspace list");
         List<Workspace> workspaceList = ApiCaller.getAllWorkspaces(executionParameters.getApiCredentials());
         Logger.log("Found " + workspaceList.size() + " Workspaces");
-        Logger.currentLevel++;
-        workspaceList.forEach(workspace -> {
-            Logger.log("Gathering project list for workspace: " + workspace.getName());
-            workspace.getProjects().addAll(ApiCaller.getAllProjects(executionParameters.getApiCredentials(), workspace));
-            Logger.log("Found " + workspace.getProjects().size() + " Projects");
+        Logger.increaseIndentation();
+        projectEnumerator.enumerateProjects(workspaceList, onWorkspaceReady);
+        Logger.decreaseIndentation();
+        logFailedWorkspaces(projectEnumerator.getFailedWorkspaces());
+        executionParameters.getInventorySnapshotPath().ifPresent(projectEnumerator.getCurrentSnapshot()::save);
+        return workspaceList;
+    }
+
+    /*
+     * Keeps the browser sessions and the inventory in memory and polls the API on an interval.
+     * Workspaces that did not change since the last poll are answered from the inventory snapshot,
+     * and only the projects that were not updated yet are sent to the updater, including those that failed
+     * before (a new project often only gets the requested branch scanned later).
+     * Runs until the process is stopped.
+     */
+    private static void watch(ExecutionParameters executionParameters, ScaProjectUpdater scaProjectUpdater,
+                              List<Workspace> workspaceList, InventorySnapshot inventorySnapshot) {
+        Set<String> knownProjectGuids = new HashSet<>();
+        workspaceList.forEach(workspace -> workspace.getProjects()
+                .forEach(project -> knownProjectGuids.add(project.getGuid())));
+        knownProjectGuids.removeAll(scaProjectUpdater.getNotUpdatedProjectGuids());
+        Duration watchInterval = executionParameters.getWatchInterval().orElseThrow();
+        Runtime.getRuntime().addShutdownHook(new Thread(scaProjectUpdater::close, "browser-shutdown"));
+        InventorySnapshot currentSnapshot = inventorySnapshot;
+        while (true) {
             Logger.printLine();
-        });
-        Logger.currentLevel--;
+            Logger.log("Watching " + knownProjectGuids.size() + " projects, next check in " +
+                    watchInterval.getSeconds() + " seconds");
+            try {
+                TimeUnit.SECONDS.sleep(watchInterval.getSeconds());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            ProjectEnumerator projectEnumerator = new ProjectEnumerator(executionParameters.getApiCredentials(),
+                    executionParameters.getEnumerationParallelism(), currentSnapshot);
+            List<Workspace> newProjectWorkspaces = getNewProjects(
+                    gatherWorkspaces(executionParameters, projectEnumerator, workspace -> {
+                    }), knownProjectGuids);
+            currentSnapshot = projectEnumerator.getCurrentSnapshot();
+            if (newProjectWorkspaces.isEmpty()) {
+                Logger.log("No new projects found");
+                continue;
+            }
+            try {
+                scaProjectUpdater.updateDefaultBranches(newProjectWorkspaces, executionParameters.getBranchName());
+                Set<String> notUpdatedProjectGuids = scaProjectUpdater.getNotUpdatedProjectGuids();
+                newProjectWorkspaces.forEach(workspace -> workspace.getProjects().stream()
+                        .map(Project::getGuid)
+                        .filter(projectGuid -> !notUpdatedProjectGuids.contains(projectGuid))
+                        .forEach(knownProjectGuids::add));
+            } catch (TimeoutException | RuntimeException e) {
+                Logger.log("Unable to update the new projects, they will be retried on the next check: " +
+                        e.getMessage());
+                Logger.debug(e::printStackTrace);
+            }
+            executionParameters.getMetricsOutputPath().ifPresent(Metrics::export);
+        }
+    }
 
-        try {
-            new ScaProjectUpdater(
-                    executionParameters.getSeleniumDriverName(), executionParameters.getSeleniumDriverLocation(),
-                    executionParameters.getVeracodeUsername(), executionParameters.getVeracodePassword())
-                    .updateDefaultBranches(workspaceList, executionParameters.getBranchName());
-        } catch (TimeoutException e) {
-            throw new RuntimeException(e);
+    /*
+     * Copies of the workspaces holding only the projects missing from knownProjectGuids,
+     * workspaces without a new project are left out.
+     */
+    private static List<Workspace> getNewProjects(List<Workspace> workspaceList, Set<String> knownProjectGuids) {
+        return workspaceList.stream()
+                .map(workspace -> new Workspace(workspace.getGuid(), workspace.getSiteId(), workspace.getName(),
+                        workspace.getProjects().stream()
+                                .filter(project -> !knownProjectGuids.contains(project.getGuid()))
+                                .collect(Collectors.toList())))
+                .filter(workspace -> !workspace.getProjects().isEmpty())
+                .collect(Collectors.toList());
+    }
+
+    private static Optional<InventorySnapshot> loadInventorySnapshot(Path inventorySnapshotPath) {
+        Instant start = Instant.now();
+        Optional<InventorySnapshot> inventorySnapshot = InventorySnapshot.load(inventorySnapshotPath);
+        inventorySnapshot.ifPresent(snapshot -> Logger.log("Loaded inventory snapshot with " + snapshot.size() +
+                " Workspaces in " + Duration.between(start, Instant.now()).toMillis() + "ms"));
+        return inventorySnapshot;
+    }
+
+    private static void logFailedWorkspaces(List<Workspace> failedWorkspaces) {
+        if (failedWorkspaces.isEmpty()) {
+            return;
         }
+        Logger.log("Unable to gather projects for the following workspaces: ");
+        Logger.increaseIndentation();
+        failedWorkspaces.forEach(workspace -> Logger.log("- " + workspace.getName()));
+        Logger.decreaseIndentation();
     }
 }
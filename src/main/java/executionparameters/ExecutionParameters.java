@@ -3,18 +3,39 @@ package executionparameters;
 import selenium.WebDriverProvider;
 import util.ApiCredentials;
 import util.Logger;
+import util.Shard;
 
 import static executionparameters.Parameters.*;
 
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
 import java.util.Optional;
 
 public class ExecutionParameters {
+    private static final int DEFAULT_ENUMERATION_PARALLELISM = 1;
+    private static final int DEFAULT_BROWSER_WORKERS = 1;
+    private static final int DEFAULT_BROWSER_TABS = 1;
+
     private final ApiCredentials apiCredentials;
     private final String veracodeUsername;
     private final String veracodePassword;
     private final String branchName;
     private final String seleniumDriverName;
     private final String seleniumDriverLocation;
+    private int enumerationParallelism = DEFAULT_ENUMERATION_PARALLELISM;
+    private int browserWorkers = DEFAULT_BROWSER_WORKERS;
+    private int browserTabs = DEFAULT_BROWSER_TABS;
+    private boolean isApiUpdateEnabled = false;
+    private Path inventorySnapshotPath;
+    private Path journalPath;
+    private boolean isResumeEnabled = false;
+    private Path metricsOutputPath;
+    private boolean isScriptedUpdateEnabled = false;
+    private Shard shard;
+    private Duration watchInterval;
+    private Path sessionStorePath;
+    private boolean isBranchPreflightEnabled = false;
 
     protected ExecutionParameters(ApiCredentials apiCredentials,
                                   String veracodeUsername, String veracodePassword,
@@ -69,7 +90,11 @@ public class ExecutionParameters {
         WebDriverProvider.isHeadless = Optional.ofNullable(parameterParser.getParameterAsString("--headless", "-h"))
                 .map("true"::equals)
                 .orElse(true);
-        return new ExecutionParameters(
+        WebDriverProvider.isLeanProfile = Optional.ofNullable(
+                        parameterParser.getParameterAsString(LEAN_BROWSER_FULL_ARGUMENT, LEAN_BROWSER_SIMPLIFIED_ARGUMENT))
+                .filter("true"::equals)
+                .isPresent();
+        ExecutionParameters executionParameters = new ExecutionParameters(
                 new ApiCredentials(
                         parameterParser.getParameterAsString(VERACODE_ID_FULL_ARGUMENT, VERACODE_ID_SIMPLIFIED_ARGUMENT),
                         parameterParser.getParameterAsString(VERACODE_KEY_FULL_ARGUMENT, VERACODE_KEY_SIMPLIFIED_ARGUMENT)),
@@ -78,6 +103,87 @@ public class ExecutionParameters {
                 parameterParser.getParameterAsString(SELENIUM_DRIVER_NAME_FULL_ARGUMENT, SELENIUM_DRIVER_NAME_SIMPLIFIED_ARGUMENT),
                 parameterParser.getParameterAsString(SELENIUM_DRIVER_LOCATION_FULL_ARGUMENT, SELENIUM_DRIVER_LOCATION_SIMPLIFIED_ARGUMENT),
                 parameterParser.getParameterAsString(BRANCH_NAME_FULL_ARGUMENT, BRANCH_NAME_SIMPLIFIED_ARGUMENT));
+        executionParameters.enumerationParallelism = parsePositiveInteger(parameterParser,
+                "Enumeration parallelism", ENUMERATION_PARALLELISM_FULL_ARGUMENT,
+                ENUMERATION_PARALLELISM_SIMPLIFIED_ARGUMENT, DEFAULT_ENUMERATION_PARALLELISM);
+        executionParameters.browserWorkers = parsePositiveInteger(parameterParser,
+                "Browser workers", BROWSER_WORKERS_FULL_ARGUMENT,
+                BROWSER_WORKERS_SIMPLIFIED_ARGUMENT, DEFAULT_BROWSER_WORKERS);
+        executionParameters.browserTabs = parsePositiveInteger(parameterParser,
+                "Browser tabs", BROWSER_TABS_FULL_ARGUMENT,
+                BROWSER_TABS_SIMPLIFIED_ARGUMENT, DEFAULT_BROWSER_TABS);
+        executionParameters.isApiUpdateEnabled = parseUpdateStrategy(parameterParser);
+        executionParameters.inventorySnapshotPath = Optional.ofNullable(parameterParser.getParameterAsString(
+                        INVENTORY_SNAPSHOT_FULL_ARGUMENT, INVENTORY_SNAPSHOT_SIMPLIFIED_ARGUMENT))
+                .map(Paths::get)
+                .orElse(null);
+        executionParameters.journalPath = Optional.ofNullable(parameterParser.getParameterAsString(
+                        JOURNAL_FULL_ARGUMENT, JOURNAL_SIMPLIFIED_ARGUMENT))
+                .map(Paths::get)
+                .orElse(null);
+        executionParameters.isResumeEnabled = Optional.ofNullable(
+                        parameterParser.getParameterAsString(RESUME_FULL_ARGUMENT, RESUME_SIMPLIFIED_ARGUMENT))
+                .filter("true"::equals)
+                .isPresent();
+        executionParameters.metricsOutputPath = Optional.ofNullable(parameterParser.getParameterAsString(
+                        METRICS_OUTPUT_FULL_ARGUMENT, METRICS_OUTPUT_SIMPLIFIED_ARGUMENT))
+                .map(Paths::get)
+                .orElse(null);
+        executionParameters.isScriptedUpdateEnabled = Optional.ofNullable(
+                        parameterParser.getParameterAsString(SCRIPTED_UPDATE_FULL_ARGUMENT, SCRIPTED_UPDATE_SIMPLIFIED_ARGUMENT))
+                .filter("true"::equals)
+                .isPresent();
+        executionParameters.shard = Optional.ofNullable(
+                        parameterParser.getParameterAsString(SHARD_FULL_ARGUMENT, SHARD_SIMPLIFIED_ARGUMENT))
+                .map(Shard::parse)
+                .orElse(null);
+        if (parameterParser.getParameterAsString(WATCH_INTERVAL_FULL_ARGUMENT, WATCH_INTERVAL_SIMPLIFIED_ARGUMENT) != null) {
+            executionParameters.watchInterval = Duration.ofSeconds(parsePositiveInteger(parameterParser,
+                    "Watch interval", WATCH_INTERVAL_FULL_ARGUMENT, WATCH_INTERVAL_SIMPLIFIED_ARGUMENT, 0));
+        }
+        executionParameters.sessionStorePath = Optional.ofNullable(parameterParser.getParameterAsString(
+                        SESSION_STORE_FULL_ARGUMENT, SESSION_STORE_SIMPLIFIED_ARGUMENT))
+                .map(Paths::get)
+                .orElse(null);
+        executionParameters.isBranchPreflightEnabled = Optional.ofNullable(
+                        parameterParser.getParameterAsString(BRANCH_PREFLIGHT_FULL_ARGUMENT, BRANCH_PREFLIGHT_SIMPLIFIED_ARGUMENT))
+                .filter("true"::equals)
+                .isPresent();
+        if (executionParameters.isResumeEnabled && executionParameters.journalPath == null) {
+            throw new IllegalArgumentException("Resume argument requires a journal (" +
+                    JOURNAL_FULL_ARGUMENT + ", " + JOURNAL_SIMPLIFIED_ARGUMENT + ")");
+        }
+        return executionParameters;
+    }
+
+    private static boolean parseUpdateStrategy(ParameterParser parameterParser) {
+        String updateStrategy = Optional.ofNullable(
+                        parameterParser.getParameterAsString(UPDATE_STRATEGY_FULL_ARGUMENT, UPDATE_STRATEGY_SIMPLIFIED_ARGUMENT))
+                .orElse(SELENIUM_UPDATE_STRATEGY);
+        if (!API_UPDATE_STRATEGY.equals(updateStrategy) && !SELENIUM_UPDATE_STRATEGY.equals(updateStrategy)) {
+            throw new IllegalArgumentException("Update strategy argument must be either " + API_UPDATE_STRATEGY +
+                    " or " + SELENIUM_UPDATE_STRATEGY + " (" + UPDATE_STRATEGY_FULL_ARGUMENT + ", " +
+                    UPDATE_STRATEGY_SIMPLIFIED_ARGUMENT + ")");
+        }
+        return API_UPDATE_STRATEGY.equals(updateStrategy);
+    }
+
+    private static int parsePositiveInteger(ParameterParser parameterParser, String fullName,
+                                            String fullArgument, String simplifiedArgument, int defaultValue) {
+        String parameter = parameterParser.getParameterAsString(fullArgument, simplifiedArgument);
+        if (parameter == null) {
+            return defaultValue;
+        }
+        try {
+            int parsedValue = Integer.parseInt(parameter);
+            if (parsedValue > 0) {
+                return parsedValue;
+            }
+        } catch (NumberFormatException e) {
+            //handled below
+        }
+        throw new IllegalArgumentException(fullName + " argument must be a positive number (" +
+                fullArgument + ", " + simplifiedArgument + ")");
     }
 
     public ApiCredentials getApiCredentials() {
@@ -103,4 +209,59 @@ public class ExecutionParameters {
     public String getVeracodeUsername() {
         return veracodeUsername;
     }
+
+    public int getEnumerationParallelism() {
+        return enumerationParallelism;
+    }
+
+    public int getBrowserWorkers() {
+        return browserWorkers;
+    }
+
+    public int getBrowserTabs() {
+        return browserTabs;
+    }
+
+    public boolean isApiUpdateEnabled() {
+        return isApiUpdateEnabled;
+    }
+
+    public Optional<Path> getInventorySnapshotPath() {
+        return Optional.ofNullable(inventorySnapshotPath);
+    }
+
+    public Optional<Path> getJournalPath() {
+        return Optional.ofNullable(journalPath);
+    }
+
+    public boolean isResumeEnabled() {
+        return isResumeEnabled;
+    }
+
+    public Optional<Path> getMetricsOutputPath() {
+        return Optional.ofNullable(metricsOutputPath);
+    }
+
+    public boolean isScriptedUpdateEnabled() {
+        return isScriptedUpdateEnabled;
+    }
+
+    public Optional<Shard> getShard() {
+        return Optional.ofNullable(shard);
+    }
+
+    /*
+     * Present when the tool should keep running and update new projects as they show up.
+     */
+    public Optional<Duration> getWatchInterval() {
+        return Optional.ofNullable(watchInterval);
+    }
+
+    public Optional<Path> getSessionStorePath() {
+        return Optional.ofNullable(sessionStorePath);
+    }
+
+    public boolean isBranchPreflightEnabled() {
+        return isBranchPreflightEnabled;
+    }
 }
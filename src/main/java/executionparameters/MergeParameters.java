@@ -0,0 +1,66 @@
+package executionparameters;
+
+import util.Logger;
+
+import static executionparameters.Parameters.*;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+/*
+ * Parameters of the merge command, which combines the journals written by several shards.
+ * None of the credentials needed for an update are required.
+ */
+public class MergeParameters {
+    private final List<Path> journalPaths;
+    private final Path mergedJournalPath;
+    private final String branchName;
+
+    protected MergeParameters(List<Path> journalPaths, Path mergedJournalPath, String branchName) {
+        if (journalPaths.isEmpty()) {
+            throw new IllegalArgumentException("At least one journal must be given to merge (" +
+                    MERGE_JOURNALS_FULL_ARGUMENT + ", " + MERGE_JOURNALS_SIMPLIFIED_ARGUMENT + ")");
+        }
+        this.journalPaths = journalPaths;
+        this.mergedJournalPath = mergedJournalPath;
+        this.branchName = branchName;
+    }
+
+    /*
+     * Empty when the command line is not asking for a merge.
+     */
+    public static Optional<MergeParameters> of(String[] commandLineArguments) {
+        ParameterParser parameterParser = new ParameterParser(commandLineArguments);
+        if (parameterParser.getParameterAsString(MERGE_JOURNALS_FULL_ARGUMENT, MERGE_JOURNALS_SIMPLIFIED_ARGUMENT) == null) {
+            return Optional.empty();
+        }
+        Logger.log("Parsing Merge Parameters");
+        List<Path> journalPaths = parameterParser.getParameterAsList(MERGE_JOURNALS_FULL_ARGUMENT, MERGE_JOURNALS_SIMPLIFIED_ARGUMENT)
+                .stream()
+                .filter(journalPath -> !journalPath.isEmpty())
+                .map(Paths::get)
+                .collect(Collectors.toList());
+        MergeParameters mergeParameters = new MergeParameters(journalPaths,
+                Optional.ofNullable(parameterParser.getParameterAsString(JOURNAL_FULL_ARGUMENT, JOURNAL_SIMPLIFIED_ARGUMENT))
+                        .map(Paths::get)
+                        .orElse(null),
+                parameterParser.getParameterAsString(BRANCH_NAME_FULL_ARGUMENT, BRANCH_NAME_SIMPLIFIED_ARGUMENT));
+        Logger.log("Finished parsing Merge Parameters");
+        return Optional.of(mergeParameters);
+    }
+
+    public List<Path> getJournalPaths() {
+        return journalPaths;
+    }
+
+    public Optional<Path> getMergedJournalPath() {
+        return Optional.ofNullable(mergedJournalPath);
+    }
+
+    public Optional<String> getBranchName() {
+        return Optional.ofNullable(branchName);
+    }
+}
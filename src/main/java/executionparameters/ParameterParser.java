@@ -15,12 +15,16 @@ public final class ParameterParser {
             if (argument.charAt(0) == '-') {
                 currentParameter = argument.toLowerCase(Locale.ROOT);
             } else {
-                Logger.debug("Reading Parameter: " + currentParameter + " with value " + argument);
+                Logger.debug("Reading Parameter: %s with value %s", currentParameter, argument);
                 parsedParameters.put(currentParameter, argument);
             }
         }
     }
 
+    public List<String> getParameterAsList(String fullName, String simpleName) {
+        return parseParameterAsList(getParameterAsString(fullName, simpleName));
+    }
+
     private List<String> parseParameterAsList(String parameter) {
         return Arrays.stream(Optional.ofNullable(parameter)
                 .map(nonNullParameter -> nonNullParameter.split(","))
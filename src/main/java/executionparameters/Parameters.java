@@ -21,4 +21,51 @@ public class Parameters {
     public static final String BRANCH_NAME_FULL_ARGUMENT = "--branch_name";
     public static final String BRANCH_NAME_SIMPLIFIED_ARGUMENT = "-b";
 
+    public static final String ENUMERATION_PARALLELISM_FULL_ARGUMENT = "--enumeration_parallelism";
+    public static final String ENUMERATION_PARALLELISM_SIMPLIFIED_ARGUMENT = "-ep";
+
+    public static final String BROWSER_WORKERS_FULL_ARGUMENT = "--browser_workers";
+    public static final String BROWSER_WORKERS_SIMPLIFIED_ARGUMENT = "-bw";
+
+    public static final String BROWSER_TABS_FULL_ARGUMENT = "--browser_tabs";
+    public static final String BROWSER_TABS_SIMPLIFIED_ARGUMENT = "-bt";
+
+    public static final String UPDATE_STRATEGY_FULL_ARGUMENT = "--update_strategy";
+    public static final String UPDATE_STRATEGY_SIMPLIFIED_ARGUMENT = "-us";
+    public static final String API_UPDATE_STRATEGY = "api";
+    public static final String SELENIUM_UPDATE_STRATEGY = "selenium";
+
+    public static final String INVENTORY_SNAPSHOT_FULL_ARGUMENT = "--inventory_snapshot";
+    public static final String INVENTORY_SNAPSHOT_SIMPLIFIED_ARGUMENT = "-is";
+
+    public static final String JOURNAL_FULL_ARGUMENT = "--journal";
+    public static final String JOURNAL_SIMPLIFIED_ARGUMENT = "-j";
+
+    public static final String RESUME_FULL_ARGUMENT = "--resume";
+    public static final String RESUME_SIMPLIFIED_ARGUMENT = "-r";
+
+    public static final String METRICS_OUTPUT_FULL_ARGUMENT = "--metrics_output";
+    public static final String METRICS_OUTPUT_SIMPLIFIED_ARGUMENT = "-mo";
+
+    public static final String SCRIPTED_UPDATE_FULL_ARGUMENT = "--scripted_update";
+    public static final String SCRIPTED_UPDATE_SIMPLIFIED_ARGUMENT = "-su";
+
+    public static final String SHARD_FULL_ARGUMENT = "--shard";
+    public static final String SHARD_SIMPLIFIED_ARGUMENT = "-s";
+
+    public static final String MERGE_JOURNALS_FULL_ARGUMENT = "--merge_journals";
+    public static final String MERGE_JOURNALS_SIMPLIFIED_ARGUMENT = "-mj";
+
+    public static final String WATCH_INTERVAL_FULL_ARGUMENT = "--watch_interval";
+    public static final String WATCH_INTERVAL_SIMPLIFIED_ARGUMENT = "-wi";
+
+    public static final String SESSION_STORE_FULL_ARGUMENT = "--session_store";
+    public static final String SESSION_STORE_SIMPLIFIED_ARGUMENT = "-ss";
+
+    public static final String LEAN_BROWSER_FULL_ARGUMENT = "--lean_browser";
+    public static final String LEAN_BROWSER_SIMPLIFIED_ARGUMENT = "-lb";
+
+    public static final String BRANCH_PREFLIGHT_FULL_ARGUMENT = "--branch_preflight";
+    public static final String BRANCH_PREFLIGHT_SIMPLIFIED_ARGUMENT = "-bp";
+
 }
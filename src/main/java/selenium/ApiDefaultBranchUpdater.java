@@ -0,0 +1,77 @@
+package selenium;
+
+import util.ApiCredentials;
+import util.Logger;
+import util.Project;
+import util.apihandlers.ApiCaller;
+
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/*
+ * Sets the default branch through a signed REST call, after reading the current one so projects already on the
+ * branch are left alone.
+ * A single instance is shared by every worker, so once the API reports the call as unsupported
+ * no other worker will try it again. Answers about a single project only send that project to the fallback.
+ */
+public class ApiDefaultBranchUpdater implements DefaultBranchUpdater {
+    private final ApiCredentials apiCredentials;
+    private final AtomicBoolean isSupported = new AtomicBoolean(true);
+
+    public ApiDefaultBranchUpdater(ApiCredentials apiCredentials) {
+        this.apiCredentials = apiCredentials;
+    }
+
+    @Override
+    public UpdateResult updateDefaultBranch(Project project, String branchName) {
+        if (!isSupported.get()) {
+            return UpdateResult.UNSUPPORTED;
+        }
+        if (ApiCaller.getDefaultBranch(apiCredentials, project).filter(branchName::equals).isPresent()) {
+            Logger.log("Default branch is already '" + branchName + "' for project: " + project.getFullName());
+            return UpdateResult.UNCHANGED;
+        }
+        int responseCode = ApiCaller.setDefaultBranch(apiCredentials, project, branchName);
+        if (responseCode >= 200 && responseCode < 300) {
+            return confirmDefaultBranch(project, branchName);
+        }
+        if (isUnavailable(responseCode)) {
+            if (isSupported.getAndSet(false)) {
+                Logger.log("Default branch API is not available (HTTP " + responseCode + "), " +
+                        "falling back to the browser for every project");
+            }
+            return UpdateResult.UNSUPPORTED;
+        }
+        project.setIssueOnUpdate("Default branch API call failed with HTTP " + responseCode +
+                " for project: " + project.getName());
+        return UpdateResult.FAILED;
+    }
+
+    /*
+     * A successful response alone does not prove the branch changed, so the project is read back first.
+     */
+    private UpdateResult confirmDefaultBranch(Project project, String branchName) {
+        Optional<String> defaultBranch = ApiCaller.getDefaultBranch(apiCredentials, project);
+        if (defaultBranch.filter(branchName::equals).isPresent()) {
+            Logger.log("Successfully set default branch to '" + branchName + "' for project: " +
+                    project.getFullName() + " through the API");
+            return UpdateResult.UPDATED;
+        }
+        project.setIssueOnUpdate("Default branch API accepted the change but the project reports " +
+                defaultBranch.map(branch -> "'" + branch + "'").orElse("no default branch") +
+                " for project: " + project.getName());
+        return UpdateResult.FAILED;
+    }
+
+    /*
+     * A missing endpoint (405, 501) or credentials without access (401, 403) fail the same way for every project,
+     * so the API is not tried again. A 400 or 404 is about the project or branch itself and only fails that project.
+     */
+    private static boolean isUnavailable(int responseCode) {
+        return responseCode == 401 || responseCode == 403 || responseCode == 405 || responseCode == 501;
+    }
+
+    public boolean isSupported() {
+        return isSupported.get();
+    }
+}
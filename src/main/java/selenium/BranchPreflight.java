@@ -0,0 +1,90 @@
+package selenium;
+
+import util.ApiCredentials;
+import util.Logger;
+import util.Project;
+import util.apihandlers.ApiCaller;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/*
+ * Reads the branches of each project through the API before it is queued, so projects without the requested branch
+ * are reported right away instead of after their page was loaded and the branch list opened in a browser.
+ * Branch lists are cached per project for a while, later watch rounds reuse them.
+ * When the API does not list the branches of any project the check turns itself off and every project is queued.
+ * A branch list is only trusted to prove a branch missing once the list of some project did include the requested
+ * branch, so a response that does not hold what this class expects never keeps projects from the updaters.
+ */
+public class BranchPreflight {
+    private static final long CACHE_LIFETIME_NANOSECONDS = TimeUnit.MINUTES.toNanos(15);
+    private static final int UNKNOWN_ANSWERS_BEFORE_GIVING_UP = 10;
+
+    private final ApiCredentials apiCredentials;
+    private final Map<String, CachedBranches> branchesByProjectGuid = new ConcurrentHashMap<>();
+    private final AtomicInteger unknownAnswers = new AtomicInteger();
+    private volatile boolean hasListedBranches = false;
+    private volatile boolean isSupported = true;
+    private volatile boolean hasListedRequestedBranch = false;
+
+    private static final class CachedBranches {
+        private final CompletableFuture<Optional<List<String>>> branches;
+        private final long fetchedAt = System.nanoTime();
+
+        private CachedBranches(CompletableFuture<Optional<List<String>>> branches) {
+            this.branches = branches;
+        }
+
+        private boolean isExpired() {
+            return System.nanoTime() - fetchedAt > CACHE_LIFETIME_NANOSECONDS;
+        }
+    }
+
+    public BranchPreflight(ApiCredentials apiCredentials) {
+        this.apiCredentials = apiCredentials;
+    }
+
+    /*
+     * Starts reading the branches without waiting for them, so the projects of a workspace are checked in parallel.
+     * Completes with an empty result when the branches are unknown.
+     */
+    public CompletableFuture<Optional<List<String>>> getBranches(Project project) {
+        if (!isSupported) {
+            return CompletableFuture.completedFuture(Optional.empty());
+        }
+        return branchesByProjectGuid.compute(project.getGuid(), (projectGuid, cachedBranches) ->
+                cachedBranches == null || cachedBranches.isExpired()
+                        ? new CachedBranches(ApiCaller.getProjectBranchesAsync(apiCredentials, project)
+                                .thenApply(this::onAnswer))
+                        : cachedBranches).branches;
+    }
+
+    /*
+     * Unknown branches never count as missing.
+     */
+    public boolean isBranchMissing(Optional<List<String>> branches, String branchName) {
+        if (branches.isEmpty()) {
+            return false;
+        }
+        if (branches.get().contains(branchName)) {
+            hasListedRequestedBranch = true;
+            return false;
+        }
+        return hasListedRequestedBranch;
+    }
+
+    private Optional<List<String>> onAnswer(Optional<List<String>> branches) {
+        if (branches.isPresent()) {
+            hasListedBranches = true;
+        } else if (!hasListedBranches && unknownAnswers.incrementAndGet() == UNKNOWN_ANSWERS_BEFORE_GIVING_UP) {
+            isSupported = false;
+            Logger.log("Project branches are not available through the API, skipping the branch check");
+        }
+        return branches;
+    }
+}
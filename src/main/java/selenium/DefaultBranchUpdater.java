@@ -0,0 +1,14 @@
+package selenium;
+
+import util.Project;
+
+/*
+ * A way of setting the default branch of a single project.
+ * Implementations are used by a single browser worker thread at a time.
+ */
+public interface DefaultBranchUpdater {
+    UpdateResult updateDefaultBranch(Project project, String branchName);
+
+    default void close() {
+    }
+}
@@ -0,0 +1,35 @@
+package selenium;
+
+import util.Logger;
+import util.Project;
+
+/*
+ * Tries the primary updater first and only uses the fallback when the primary one did not succeed.
+ */
+public class FallbackDefaultBranchUpdater implements DefaultBranchUpdater {
+    private final DefaultBranchUpdater primaryUpdater;
+    private final DefaultBranchUpdater fallbackUpdater;
+
+    public FallbackDefaultBranchUpdater(DefaultBranchUpdater primaryUpdater, DefaultBranchUpdater fallbackUpdater) {
+        this.primaryUpdater = primaryUpdater;
+        this.fallbackUpdater = fallbackUpdater;
+    }
+
+    @Override
+    public UpdateResult updateDefaultBranch(Project project, String branchName) {
+        UpdateResult primaryResult = primaryUpdater.updateDefaultBranch(project, branchName);
+        if (primaryResult.isSuccessful()) {
+            return primaryResult;
+        }
+        if (primaryResult == UpdateResult.FAILED) {
+            Logger.debug("Primary update failed for project: %s, using fallback", project.getFullName());
+        }
+        return fallbackUpdater.updateDefaultBranch(project, branchName);
+    }
+
+    @Override
+    public void close() {
+        primaryUpdater.close();
+        fallbackUpdater.close();
+    }
+}
@@ -0,0 +1,99 @@
+package selenium;
+
+import executionparameters.MergeParameters;
+import util.Logger;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+/*
+ * Combines the journals written by the shards of a run into a single summary and failure report.
+ * When a project shows up more than once for a branch, its most recent outcome wins.
+ */
+public final class JournalMerger {
+    private JournalMerger() {
+        throw new IllegalStateException("This class should not be instantiated");
+    }
+
+    public static void merge(MergeParameters mergeParameters) {
+        List<UpdateJournal.Entry> allEntries = new ArrayList<>();
+        for (Path journalPath : mergeParameters.getJournalPaths()) {
+            try {
+                List<UpdateJournal.Entry> journalEntries = UpdateJournal.read(journalPath);
+                Logger.log("Read " + journalEntries.size() + " entries from " + journalPath);
+                allEntries.addAll(journalEntries);
+            } catch (IOException e) {
+                Logger.log("Unable to read journal " + journalPath);
+                Logger.debug(e::printStackTrace);
+            }
+        }
+        Map<String, UpdateJournal.Entry> latestEntries = new LinkedHashMap<>();
+        allEntries.stream()
+                .filter(entry -> mergeParameters.getBranchName().map(entry.getBranchName()::equals).orElse(true))
+                .sorted(Comparator.comparing(UpdateJournal.Entry::getTimestamp))
+                .forEach(entry -> latestEntries.put(entry.getBranchName() + "\t" + entry.getProjectGuid(), entry));
+        Map<String, List<UpdateJournal.Entry>> entriesByBranch = latestEntries.values().stream()
+                .collect(Collectors.groupingBy(UpdateJournal.Entry::getBranchName, TreeMap::new, Collectors.toList()));
+        entriesByBranch.forEach(JournalMerger::logBranchSummary);
+        mergeParameters.getMergedJournalPath().ifPresent(mergedJournalPath ->
+                writeMergedJournal(mergedJournalPath, latestEntries.values()));
+    }
+
+    private static void logBranchSummary(String branchName, List<UpdateJournal.Entry> branchEntries) {
+        Map<UpdateResult, Long> resultCounts = new EnumMap<>(UpdateResult.class);
+        branchEntries.forEach(entry -> resultCounts.merge(entry.getUpdateResult(), 1L, Long::sum));
+        Logger.printLine();
+        Logger.log("Branch " + branchName + ": " + branchEntries.size() + " projects");
+        Logger.increaseIndentation();
+        resultCounts.forEach((updateResult, count) -> Logger.log(updateResult.name() + ": " + count));
+        Logger.decreaseIndentation();
+        List<UpdateJournal.Entry> failedEntries = branchEntries.stream()
+                .filter(entry -> !entry.getUpdateResult().isSuccessful())
+                .sorted(Comparator.comparing(UpdateJournal.Entry::getProjectFullName))
+                .collect(Collectors.toList());
+        if (failedEntries.isEmpty()) {
+            return;
+        }
+        Logger.log("Unable to update the following projects: ");
+        Logger.increaseIndentation();
+        failedEntries.forEach(entry -> {
+            Logger.log("- " + entry.getProjectFullName());
+            Logger.increaseIndentation();
+            Logger.log(entry.getIssue().isEmpty() ? entry.getUpdateResult().name() : entry.getIssue());
+            Logger.decreaseIndentation();
+        });
+        Logger.decreaseIndentation();
+    }
+
+    /*
+     * Written in timestamp order, so the merged journal can be used to resume any of the shards.
+     * Written to a temporary file first and moved over any previous merge, so merging again never duplicates entries.
+     */
+    private static void writeMergedJournal(Path mergedJournalPath, Iterable<UpdateJournal.Entry> entries) {
+        List<UpdateJournal.Entry> sortedEntries = new ArrayList<>();
+        entries.forEach(sortedEntries::add);
+        sortedEntries.sort(Comparator.comparing(UpdateJournal.Entry::getTimestamp));
+        Path temporaryPath = mergedJournalPath.resolveSibling(mergedJournalPath.getFileName() + ".tmp");
+        try {
+            try (UpdateJournal mergedJournal = UpdateJournal.create(temporaryPath)) {
+                sortedEntries.forEach(mergedJournal::record);
+            }
+            Files.move(temporaryPath, mergedJournalPath, StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+            Logger.log("Merged journal written to " + mergedJournalPath);
+        } catch (IOException e) {
+            Logger.log("Unable to write merged journal " + mergedJournalPath);
+            Logger.debug(e::printStackTrace);
+        }
+    }
+}
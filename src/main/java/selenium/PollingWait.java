@@ -0,0 +1,52 @@
+package selenium;
+
+import org.openqa.selenium.WebDriver;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/*
+ * State of a single wait on the page. The pause between two checks starts short and grows up to a tenth of a second,
+ * so an element showing up quickly is noticed quickly, while a long wait does not flood the driver with requests.
+ * Being sent back to the login page ends the wait early, but the URL is only checked about once a second
+ * as it costs an extra round trip to the browser.
+ */
+public class PollingWait {
+    private static final long TIMEOUT_NANOSECONDS = TimeUnit.SECONDS.toNanos(30);
+    private static final long URL_CHECK_INTERVAL_NANOSECONDS = TimeUnit.SECONDS.toNanos(1);
+    private static final long INITIAL_PAUSE_MILLISECONDS = 10;
+    private static final long MAXIMUM_PAUSE_MILLISECONDS = 100;
+    private static final String LOGOUT_URL_FRAGMENT = "/login?logout";
+
+    private final WebDriver webDriver;
+    private final long start = System.nanoTime();
+    private long lastUrlCheck = start;
+    private long pauseMilliseconds = INITIAL_PAUSE_MILLISECONDS;
+
+    public PollingWait(WebDriver webDriver) {
+        this.webDriver = webDriver;
+    }
+
+    /*
+     * Throws a TimeoutException once the wait has lasted too long or the session was logged out,
+     * otherwise sleeps until the next check.
+     */
+    public void pause() throws TimeoutException {
+        long now = System.nanoTime();
+        if (now - start > TIMEOUT_NANOSECONDS) {
+            throw new TimeoutException("Timed out when running command");
+        }
+        if (webDriver != null && now - lastUrlCheck >= URL_CHECK_INTERVAL_NANOSECONDS) {
+            lastUrlCheck = now;
+            if (webDriver.getCurrentUrl().contains(LOGOUT_URL_FRAGMENT)) {
+                throw new TimeoutException("Timed out when running command");
+            }
+        }
+        try {
+            TimeUnit.MILLISECONDS.sleep(pauseMilliseconds);
+        } catch (InterruptedException e) {
+            //nothing to do here
+        }
+        pauseMilliseconds = Math.min(MAXIMUM_PAUSE_MILLISECONDS, pauseMilliseconds * 3 / 2);
+    }
+}
@@ -0,0 +1,166 @@
+package selenium;
+
+import util.Project;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/*
+ * Projects waiting for a browser worker. A project that timed out goes back at the end of the queue and only
+ * becomes available again after a jittered exponential backoff, so healthy projects keep flowing meanwhile.
+ * Projects can be added while workers are already taking them, adding blocks once "capacity" projects are pending.
+ * The queue is finished once no more projects will be added and every project added to it has been completed.
+ */
+public class ProjectWorkQueue {
+    private static final long INITIAL_BACKOFF_MILLISECONDS = 1000;
+    private static final long MAXIMUM_BACKOFF_MILLISECONDS = 60_000;
+    private static final long POLLING_INTERVAL_MILLISECONDS = 200;
+
+    private final DelayQueue<ProjectTask> readyTasks = new DelayQueue<>();
+    private final AtomicInteger pendingTasks = new AtomicInteger();
+    private final Semaphore freeCapacity;
+    private final int retriesPerProject;
+    private volatile boolean isAddingFinished = false;
+    private volatile boolean isAbandoned = false;
+
+    public static final class ProjectTask implements Delayed {
+        private final Project project;
+        private final int attempt;
+        private final long availableAt;
+
+        private ProjectTask(Project project, int attempt, long availableAt) {
+            this.project = project;
+            this.attempt = attempt;
+            this.availableAt = availableAt;
+        }
+
+        public Project getProject() {
+            return project;
+        }
+
+        public int getAttempt() {
+            return attempt;
+        }
+
+        @Override
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(availableAt - System.nanoTime(), TimeUnit.NANOSECONDS);
+        }
+
+        @Override
+        public int compareTo(Delayed other) {
+            if (other instanceof ProjectTask) {
+                return Long.compare(availableAt, ((ProjectTask) other).availableAt);
+            }
+            return Long.compare(getDelay(TimeUnit.NANOSECONDS), other.getDelay(TimeUnit.NANOSECONDS));
+        }
+    }
+
+    public ProjectWorkQueue(int retriesPerProject, int capacity) {
+        this.retriesPerProject = retriesPerProject;
+        this.freeCapacity = new Semaphore(capacity);
+    }
+
+    /*
+     * Waits while the queue is full, returns false without adding the project once the queue was abandoned.
+     */
+    public boolean add(Project project) {
+        try {
+            while (!freeCapacity.tryAcquire(POLLING_INTERVAL_MILLISECONDS, TimeUnit.MILLISECONDS)) {
+                if (isAbandoned) {
+                    return false;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+        pendingTasks.incrementAndGet();
+        readyTasks.add(new ProjectTask(project, 0, System.nanoTime()));
+        return true;
+    }
+
+    /*
+     * No more projects will be added, workers stop once the remaining ones are completed.
+     */
+    public void finishAdding() {
+        isAddingFinished = true;
+    }
+
+    /*
+     * No worker is left to take projects, so adding must not wait for free capacity anymore.
+     */
+    public void abandon() {
+        isAbandoned = true;
+    }
+
+    /*
+     * Waits for the next project whose backoff has elapsed, empty once the queue is finished.
+     */
+    public Optional<ProjectTask> take() throws InterruptedException {
+        while (!isFinished()) {
+            ProjectTask projectTask = readyTasks.poll(POLLING_INTERVAL_MILLISECONDS, TimeUnit.MILLISECONDS);
+            if (projectTask != null) {
+                return Optional.of(projectTask);
+            }
+        }
+        return Optional.empty();
+    }
+
+    /*
+     * Next project whose backoff has elapsed, without waiting for one.
+     */
+    public Optional<ProjectTask> poll() {
+        return Optional.ofNullable(readyTasks.poll());
+    }
+
+    /*
+     * Hands a project that was taken but not attempted back to the queue, it is available again right away.
+     */
+    public void putBack(ProjectTask projectTask) {
+        readyTasks.add(new ProjectTask(projectTask.project, projectTask.attempt, System.nanoTime()));
+    }
+
+    /*
+     * Puts the project back with a backoff, returns false when its retry budget is spent.
+     */
+    public boolean retryLater(ProjectTask projectTask) {
+        if (projectTask.attempt >= retriesPerProject) {
+            return false;
+        }
+        long backoff = Math.min(MAXIMUM_BACKOFF_MILLISECONDS, INITIAL_BACKOFF_MILLISECONDS << projectTask.attempt);
+        long jitteredBackoff = backoff / 2 + ThreadLocalRandom.current().nextLong(backoff / 2 + 1);
+        readyTasks.add(new ProjectTask(projectTask.project, projectTask.attempt + 1,
+                System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(jitteredBackoff)));
+        return true;
+    }
+
+    /*
+     * Takes every project still waiting, whether its backoff has elapsed or not, once no worker is left to take them.
+     */
+    public List<ProjectTask> removeRemaining() {
+        List<ProjectTask> remainingTasks = new ArrayList<>(readyTasks);
+        readyTasks.clear();
+        return remainingTasks;
+    }
+
+    public void complete(ProjectTask projectTask) {
+        pendingTasks.decrementAndGet();
+        freeCapacity.release();
+    }
+
+    public boolean isFinished() {
+        return isAddingFinished && pendingTasks.get() == 0;
+    }
+
+    public int getPendingCount() {
+        return pendingTasks.get();
+    }
+}
@@ -0,0 +1,475 @@
+package selenium;
+
+import org.openqa.selenium.By;
+import org.openqa.selenium.Cookie;
+import org.openqa.selenium.Dimension;
+import org.openqa.selenium.InvalidCookieDomainException;
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.StaleElementReferenceException;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebElement;
+import util.Logger;
+import util.Project;
+import util.metrics.Metrics;
+
+import java.net.URI;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.TimeoutException;
+
+/*
+ * Owns a single browser session. Each worker logs in once and is then used by a single thread.
+ * The browser is only started when the first project needs it, with the cookies of the session store when
+ * there is one, so the login form is only filled in when the stored session was rejected.
+ * With more than one tab, the pages of the next projects are loaded in the other tabs while the active tab is
+ * being updated, and the worker then simply switches to the tab of the next project. A prefetched page is only
+ * used once it shows the project it was loaded for, otherwise the project page is loaded again.
+ */
+public class ScaBrowserWorker implements DefaultBranchUpdater {
+    private static final String AGENT_BASED_BASE_URL = "https://sca.analysiscenter.veracode.com";
+    private static final String LOGIN_URL = "https://web.analysiscenter.veracode.com/login/";
+    private static final String SESSION_SEED_URL = AGENT_BASED_BASE_URL + "/favicon.ico";
+    private static final String BLANK_PAGE_URL = "about:blank";
+    private static final String USERNAME_FIELD_ID = "okta-signin-username";
+    private static final String PASSWORD_FIELD_ID = "okta-signin-password";
+    private static final String LOGIN_BUTTON_ID = "okta-signin-submit";
+    private static final String USER_NAME_ICON_ID = "icon_user";
+    private static final String SETTINGS_BUTTON_CSS_SELECTOR = ".link--obvious > .font--16";
+    private static final String SHOW_BRANCHES_BUTTON_XPATH = "//div[@class='col-1-3 inline-block']/div/div/div/div/div[@class='css-1wy0on6 srcclr-react-select__indicators']";
+    private static final String CURRENT_BRANCH_XPATH = "//div[@class='col-1-3 inline-block']//div[contains(@class, 'srcclr-react-select__single-value')]";
+    private static final String BRANCH_SELECT_OPTION_XPATH = "//div[@class='css-15k3avv srcclr-react-select__menu']";
+    private static final String SAVE_BUTTON_XPATH = "//button[text()='Save']";
+    public static final String AGENT_BASED_SCAN_SETTINGS_BUTTON_XPATH = "//div[@data-automation-id='AgentBasedScanSettings-Button']";
+
+    private final String seleniumDriverName;
+    private final String veracodeUsername;
+    private final String veracodePassword;
+    private final boolean isScriptedUpdate;
+    private final SessionStore sessionStore;
+    private final int tabCount;
+    private final SessionValidity sessionValidity = new SessionValidity();
+    private final Deque<String> freeTabs = new ArrayDeque<>();
+    private final Map<String, String> prefetchedTabsByProjectGuid = new HashMap<>();
+    private WebDriver webDriver;
+    private String activeTab;
+    private String activeTabProjectGuid;
+    private int openTabs;
+
+    public ScaBrowserWorker(String seleniumDriverName,
+                            String veracodeUsername,
+                            String veracodePassword,
+                            boolean isScriptedUpdate,
+                            SessionStore sessionStore,
+                            int tabCount) {
+        this.seleniumDriverName = seleniumDriverName;
+        this.veracodeUsername = veracodeUsername;
+        this.veracodePassword = veracodePassword;
+        this.isScriptedUpdate = isScriptedUpdate;
+        this.sessionStore = sessionStore;
+        this.tabCount = tabCount;
+    }
+
+    public void start() throws TimeoutException {
+        webDriver = WebDriverProvider.getDriver(seleniumDriverName);
+        webDriver.manage().window().setSize(new Dimension(1920, 1080));
+        activeTab = webDriver.getWindowHandle();
+        openTabs = 1;
+        if (!restoreSession()) {
+            loginToPlatform();
+        }
+    }
+
+    /*
+     * Cookies can only be added for the domain of the page currently open, so a light page of the platform is
+     * opened first and cookies of other domains (Okta) are left out. One /portfolio load tells whether the
+     * platform accepted them.
+     */
+    private boolean restoreSession() {
+        if (sessionStore == null) {
+            return false;
+        }
+        Set<Cookie> storedCookies = sessionStore.load();
+        if (storedCookies.isEmpty()) {
+            return false;
+        }
+        webDriver.get(SESSION_SEED_URL);
+        String platformHost = URI.create(AGENT_BASED_BASE_URL).getHost();
+        for (Cookie storedCookie : storedCookies) {
+            if (isCookieFor(storedCookie, platformHost)) {
+                try {
+                    webDriver.manage().addCookie(storedCookie);
+                } catch (InvalidCookieDomainException e) {
+                    Logger.debug("Skipping stored cookie %s for domain %s", storedCookie.getName(),
+                            storedCookie.getDomain());
+                }
+            }
+        }
+        if (!isLoggedIn()) {
+            Logger.log("Stored browser session was rejected, logging into the Veracode platform instead");
+            webDriver.manage().deleteAllCookies();
+            return false;
+        }
+        confirmSession();
+        Logger.log("Restored the stored browser session");
+        return true;
+    }
+
+    private static boolean isCookieFor(Cookie cookie, String host) {
+        if (cookie.getDomain() == null) {
+            return true;
+        }
+        String domain = cookie.getDomain().startsWith(".") ? cookie.getDomain().substring(1) : cookie.getDomain();
+        return host.equals(domain) || host.endsWith("." + domain);
+    }
+
+    public boolean isStarted() {
+        return webDriver != null;
+    }
+
+    @Override
+    public void close() {
+        sessionValidity.invalidate();
+        freeTabs.clear();
+        prefetchedTabsByProjectGuid.clear();
+        activeTab = null;
+        activeTabProjectGuid = null;
+        if (webDriver != null) {
+            webDriver.quit();
+            webDriver = null;
+        }
+    }
+
+    @Override
+    public UpdateResult updateDefaultBranch(Project project, String branchName) {
+        if (webDriver == null) {
+            try {
+                start();
+            } catch (TimeoutException e) {
+                close();
+                project.setIssueOnUpdate("Unable to log into the Veracode platform to update project: " +
+                        project.getName());
+                return UpdateResult.TIMED_OUT;
+            }
+        }
+        return updateDefaultBranchForProject(project, branchName);
+    }
+
+    /*
+     * A timeout is reported as TIMED_OUT, retrying the project is left to the caller.
+     * The session is only checked against the platform when it is no longer trusted, an expired session that was
+     * still trusted is noticed when the project page redirects to the login page.
+     */
+    public UpdateResult updateDefaultBranchForProject(Project project, String branchName) {
+        try {
+            ensureSession();
+            String projectUrl = getProjectUrl(project);
+            if (!hasLoadedPrefetchedPage(project, projectUrl)) {
+                webDriver.get(projectUrl);
+            }
+            activeTabProjectGuid = null;
+            if (SessionValidity.isLoginPage(webDriver.getCurrentUrl())) {
+                Logger.debug("Redirected to the login page, trying to log back in");
+                sessionValidity.invalidate();
+                loginToPlatform();
+                webDriver.get(projectUrl);
+            }
+            UpdateResult updateResult = isScriptedUpdate
+                    ? runScriptedUpdate(project, branchName)
+                    : updateThroughSettingsMenu(project, branchName);
+            if (updateResult == UpdateResult.TIMED_OUT) {
+                sessionValidity.invalidate();
+            } else {
+                sessionValidity.markActive();
+            }
+            return updateResult;
+        } catch (TimeoutException e) {
+            sessionValidity.invalidate();
+            setProjectAsFailed(project, e);
+            return UpdateResult.TIMED_OUT;
+        }
+    }
+
+    /*
+     * Makes the tab the project page was prefetched in the active one and frees the tab of the previous project,
+     * so it can be used for prefetching right away, before the project itself is updated.
+     */
+    public void switchToProject(Project project) {
+        String prefetchedTab = prefetchedTabsByProjectGuid.remove(project.getGuid());
+        if (prefetchedTab == null || webDriver == null) {
+            return;
+        }
+        freeTabs.add(activeTab);
+        activeTab = prefetchedTab;
+        activeTabProjectGuid = project.getGuid();
+        webDriver.switchTo().window(activeTab);
+    }
+
+    /*
+     * The navigation of a prefetched tab may not have happened yet, or the session check may have reused the tab
+     * since, so the page is only trusted when it is the project page and has been parsed.
+     */
+    private boolean hasLoadedPrefetchedPage(Project project, String projectUrl) {
+        if (!project.getGuid().equals(activeTabProjectGuid) || !projectUrl.equals(webDriver.getCurrentUrl())) {
+            return false;
+        }
+        Object readyState = ((JavascriptExecutor) webDriver).executeScript("return document.readyState;");
+        return "interactive".equals(readyState) || "complete".equals(readyState);
+    }
+
+    /*
+     * Starts loading the project page in a free tab and returns to the active tab right away, the navigation is
+     * started from a timer so the driver does not wait for the page. The tab is blanked first, so it never still
+     * shows the project it was last used for. Nothing is loaded while the session is not trusted, as the page would
+     * only redirect to the login page.
+     */
+    public void prefetch(Project project) {
+        if (webDriver == null || !sessionValidity.isLikelyValid()
+                || prefetchedTabsByProjectGuid.containsKey(project.getGuid())) {
+            return;
+        }
+        String freeTab = freeTabs.isEmpty() && openTabs < tabCount ? openTab() : freeTabs.poll();
+        if (freeTab == null) {
+            return;
+        }
+        webDriver.switchTo().window(freeTab);
+        webDriver.get(BLANK_PAGE_URL);
+        ((JavascriptExecutor) webDriver).executeScript(
+                "var projectUrl = arguments[0]; setTimeout(function () { location.href = projectUrl; }, 0);",
+                getProjectUrl(project));
+        webDriver.switchTo().window(activeTab);
+        prefetchedTabsByProjectGuid.put(project.getGuid(), freeTab);
+        Logger.debug("Loading project %s in a background tab", project.getFullName());
+    }
+
+    private String openTab() {
+        Set<String> knownTabs = webDriver.getWindowHandles();
+        ((JavascriptExecutor) webDriver).executeScript("window.open(arguments[0], '_blank');", BLANK_PAGE_URL);
+        Set<String> newTabs = new HashSet<>(webDriver.getWindowHandles());
+        newTabs.removeAll(knownTabs);
+        webDriver.switchTo().window(activeTab);
+        if (newTabs.isEmpty()) {
+            //the browser refused to open a tab, keep working with the tabs already open
+            openTabs = tabCount;
+            return null;
+        }
+        openTabs++;
+        return newTabs.iterator().next();
+    }
+
+    private static String getProjectUrl(Project project) {
+        return AGENT_BASED_BASE_URL + "/workspaces/" + project.getWorkspace().getSiteId() +
+                "/projects/" + project.getSiteId() + "/issues";
+    }
+
+    private void ensureSession() throws TimeoutException {
+        if (sessionValidity.isLikelyValid()) {
+            return;
+        }
+        if (isLoggedIn()) {
+            confirmSession();
+        } else {
+            Logger.debug("Session expired, trying to log back in");
+            loginToPlatform();
+        }
+    }
+
+    private UpdateResult updateThroughSettingsMenu(Project project, String branchName) throws TimeoutException {
+        openSettingsMenu();
+        if (getCurrentDefaultBranch().filter(branchName::equals).isPresent()) {
+            Logger.log("Default branch is already '" + branchName + "' for project: " + project.getFullName());
+            return UpdateResult.UNCHANGED;
+        }
+        openBranchList();
+        WebElement branchSelectOption =
+                SeleniumHelper.getElement(webDriver, By.xpath(BRANCH_SELECT_OPTION_XPATH)).orElse(null);
+        if (branchSelectOption == null
+                || !SeleniumHelper.hasElementRightNow(branchSelectOption, By.xpath("..//div[text()='" + branchName + "']"))) {
+            logMissingBranchName(project, branchName, branchSelectOption);
+            return UpdateResult.BRANCH_MISSING;
+        }
+        SeleniumHelper.clickElement(webDriver, branchSelectOption, By.xpath("..//div[text()='" + branchName + "']"));
+        save();
+        Logger.log("Successfully set default branch to '" + branchName + "' for project: " + project.getFullName());
+        return UpdateResult.UPDATED;
+    }
+
+    private UpdateResult runScriptedUpdate(Project project, String branchName) {
+        long startTime = System.nanoTime();
+        UpdateResult updateResult = ScriptedBranchUpdate.run(webDriver, project, branchName,
+                SETTINGS_BUTTON_CSS_SELECTOR, SHOW_BRANCHES_BUTTON_XPATH, CURRENT_BRANCH_XPATH,
+                BRANCH_SELECT_OPTION_XPATH, SAVE_BUTTON_XPATH);
+        Metrics.recordSince(Metrics.SCRIPTED_UPDATE, startTime);
+        switch (updateResult) {
+            case UPDATED:
+                Logger.log("Successfully set default branch to '" + branchName + "' for project: " + project.getFullName());
+                break;
+            case UNCHANGED:
+                Logger.log("Default branch is already '" + branchName + "' for project: " + project.getFullName());
+                break;
+            case BRANCH_MISSING:
+                Logger.log("Unable to update project: " + project.getFullName());
+                break;
+            default:
+                Logger.log("Error trying to update project: " + project.getFullName());
+        }
+        return updateResult;
+    }
+
+    private void openSettingsMenu() throws TimeoutException {
+        long startTime = System.nanoTime();
+        try {
+            SeleniumHelper.waitForElementPresentAndClickIt(webDriver, By.cssSelector(SETTINGS_BUTTON_CSS_SELECTOR));
+            SeleniumHelper.waitForElementPresent(webDriver, By.xpath(SHOW_BRANCHES_BUTTON_XPATH));
+        } finally {
+            Metrics.recordSince(Metrics.OPEN_SETTINGS, startTime);
+        }
+    }
+
+    /*
+     * Timed until the platform confirmed the change, not only the click.
+     */
+    private void save() throws TimeoutException {
+        long startTime = System.nanoTime();
+        try {
+            SeleniumHelper.clickElement(webDriver, By.xpath(SAVE_BUTTON_XPATH));
+            waitForSaveConfirmation();
+        } finally {
+            Metrics.recordSince(Metrics.SAVE, startTime);
+        }
+    }
+
+    /*
+     * The settings form removes or disables its Save button once the change is stored. A button replaced while it
+     * is being checked is looked up again.
+     */
+    private void waitForSaveConfirmation() throws TimeoutException {
+        SeleniumHelper.waitForConditionOrMissingElement(webDriver, By.xpath(SAVE_BUTTON_XPATH), saveButton -> {
+            try {
+                return !saveButton.isEnabled();
+            } catch (StaleElementReferenceException e) {
+                return false;
+            }
+        });
+    }
+
+    private void openBranchList() throws TimeoutException {
+        SeleniumHelper.clickElement(webDriver, By.xpath(SHOW_BRANCHES_BUTTON_XPATH));
+        waitForLoad();
+    }
+
+    /*
+     * The branch shown by the closed branch select, read without opening the branch list.
+     */
+    private Optional<String> getCurrentDefaultBranch() {
+        return webDriver.findElements(By.xpath(CURRENT_BRANCH_XPATH)).stream()
+                .findFirst()
+                .map(WebElement::getText)
+                .map(String::trim);
+    }
+
+    private void logMissingBranchName(Project project, String branchName, WebElement branchSelectOption) {
+        if (branchSelectOption != null && branchSelectOption.getAttribute("innerHTML") != null) {
+            project.setIssueOnUpdate(
+                    "Couldn't find branch named " + branchName + " for project: " + project.getName() +
+                    "\nFound the following options: " + branchSelectOption.getText().replace("\n", ", "));
+
+        }
+        Logger.log("Unable to update project: " + project.getFullName());
+    }
+
+    private void setProjectAsFailed(Project project, TimeoutException e) {
+        Logger.log("Error trying to update project: " + project.getFullName());
+        project.setIssueOnUpdate("Unable to update project: " + project.getName());
+        Logger.debug(() -> {
+            project.concatenateIssue("Currently on URL: " + webDriver.getCurrentUrl());
+            project.concatenateIssue("With page source: " + webDriver.getPageSource());
+        });
+        Logger.debug(e::printStackTrace);
+    }
+
+    private boolean isLoggedIn() {
+        long startTime = System.nanoTime();
+        try {
+            webDriver.get("https://sca.analysiscenter.veracode.com/portfolio");
+            if (SessionValidity.isLoginPage(webDriver.getCurrentUrl())) {
+                return false;
+            }
+            return SeleniumHelper.hasElement(webDriver, By.xpath(AGENT_BASED_SCAN_SETTINGS_BUTTON_XPATH));
+        } finally {
+            Metrics.recordSince(Metrics.SESSION_CHECK, startTime);
+        }
+    }
+
+    private void waitForLoad() throws TimeoutException {
+        long startTime = System.nanoTime();
+        try {
+            waitForBranchList();
+        } finally {
+            Metrics.recordSince(Metrics.BRANCH_LIST_LOAD, startTime);
+        }
+    }
+
+    private void waitForBranchList() throws TimeoutException {
+        boolean hasLoaded = false;
+        PollingWait pollingWait = new PollingWait(webDriver);
+        while (!hasLoaded) {
+            WebElement branchSelectOption =
+                    SeleniumHelper.getElement(webDriver, By.xpath(BRANCH_SELECT_OPTION_XPATH)).orElse(null);
+            if (branchSelectOption != null) {
+                hasLoaded = !SeleniumHelper.hasElementRightNow(branchSelectOption, By.xpath("..//div[text()='Loading...']"));
+            }
+            if (!hasLoaded) {
+                pollingWait.pause();
+            }
+        }
+    }
+
+    /*
+     * With a session store, the login is followed by a /portfolio load: the login lands on another host and
+     * getCookies only returns the cookies of the current page, while the session store needs the platform's own.
+     */
+    private void loginToPlatform() throws TimeoutException {
+        long startTime = System.nanoTime();
+        try {
+            logIn();
+        } finally {
+            Metrics.recordSince(Metrics.LOGIN, startTime);
+        }
+        if (sessionStore == null) {
+            sessionValidity.confirm(webDriver.manage().getCookies());
+        } else if (isLoggedIn()) {
+            confirmSession();
+        } else {
+            throw new TimeoutException("Logged in but unable to open the Veracode platform");
+        }
+    }
+
+    /*
+     * Only called right after a successful /portfolio check, so the cookies are those of the platform host,
+     * the same host restoreSession adds them back to.
+     */
+    private void confirmSession() {
+        Set<Cookie> sessionCookies = webDriver.manage().getCookies();
+        sessionValidity.confirm(sessionCookies);
+        if (sessionStore != null) {
+            sessionStore.save(sessionCookies);
+        }
+    }
+
+    private void logIn() throws TimeoutException {
+        Logger.log("Logging into the Veracode platform");
+        webDriver.get(LOGIN_URL);
+        SeleniumHelper.waitForElementPresent(webDriver, By.id(LOGIN_BUTTON_ID));
+        webDriver.findElement(By.id(USERNAME_FIELD_ID)).sendKeys(veracodeUsername);
+        webDriver.findElement(By.id(PASSWORD_FIELD_ID)).sendKeys(veracodePassword);
+        SeleniumHelper.clickElement(webDriver, By.id(LOGIN_BUTTON_ID));
+        SeleniumHelper.waitForElementPresent(webDriver, By.id(USER_NAME_ICON_ID));
+        Logger.log("Logged into the Veracode platform");
+        Logger.debug(() -> Logger.log("Landed on URL: " + webDriver.getCurrentUrl()));
+    }
+}
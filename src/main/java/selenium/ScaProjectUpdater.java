@@ -1,199 +1,447 @@
 package selenium;
 
-import org.openqa.selenium.By;
-import org.openqa.selenium.Dimension;
-import org.openqa.selenium.WebDriver;
-import org.openqa.selenium.WebElement;
+import executionparameters.ExecutionParameters;
+import org.openqa.selenium.NoSuchSessionException;
+import org.openqa.selenium.SessionNotCreatedException;
 import org.openqa.selenium.firefox.FirefoxDriver;
+import org.openqa.selenium.remote.UnreachableBrowserException;
 import util.Logger;
 import util.Project;
+import util.Shard;
 import util.Workspace;
 
-import java.time.Instant;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.EnumMap;
 import java.util.List;
-import java.util.concurrent.TimeUnit;
+import java.util.Queue;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
 
-public class ScaProjectUpdater {
-    private static final String AGENT_BASED_BASE_URL = "https://sca.analysiscenter.veracode.com";
-    private static final String LOGIN_URL = "https://web.analysiscenter.veracode.com/login/";
-    private static final String USERNAME_FIELD_ID = "okta-signin-username";
-    private static final String PASSWORD_FIELD_ID = "okta-signin-password";
-    private static final String LOGIN_BUTTON_ID = "okta-signin-submit";
-    private static final String USER_NAME_ICON_ID = "icon_user";
-    private static final String SETTINGS_BUTTON_CSS_SELECTOR = ".link--obvious > .font--16";
-    private static final String SHOW_BRANCHES_BUTTON_XPATH = "//div[@class='col-1-3 inline-block']/div/div/div/div/div[@class='css-1wy0on6 srcclr-react-select__indicators']";
-    private static final String BRANCH_SELECT_OPTION_XPATH = "//div[@class='css-15k3avv srcclr-react-select__menu']";
-    private static final String SAVE_BUTTON_XPATH = "//button[text()='Save']";
-    private static final int MAX_ATTEMPTS_PER_PROJECT = 10;
-    public static final String AGENT_BASED_SCAN_SETTINGS_BUTTON_XPATH = "//div[@data-automation-id='AgentBasedScanSettings-Button']";
-
+/*
+ * Browser sessions outlive a single call to updateDefaultBranches, so repeated calls reuse the logged in browsers.
+ * They are only closed by close().
+ */
+public class ScaProjectUpdater implements AutoCloseable {
+    private static final int RETRIES_PER_PROJECT = 10;
+    private static final int QUEUE_CAPACITY = 500;
+    private static final String NO_WORKER_LEFT_ISSUE = "No browser worker was left to update project: ";
     private final String seleniumDriverName;
     private final String seleniumDriverLocation;
     private final String veracodeUsername;
     private final String veracodePassword;
-    private final List<Project> projectsNotUpdated = new ArrayList<>();
-    private WebDriver webDriver;
+    private final int browserWorkers;
+    private final int browserTabs;
+    private final ApiDefaultBranchUpdater apiUpdater;
+    private final Path journalPath;
+    private final boolean isResumeEnabled;
+    private final boolean isScriptedUpdate;
+    private final Shard shard;
+    private final SessionStore sessionStore;
+    private final BranchPreflight branchPreflight;
+    private final ScaBrowserWorker[] browserWorkerSessions;
+    private final Queue<Project> projectsNotUpdated = new ConcurrentLinkedQueue<>();
+    private final Map<UpdateResult, AtomicInteger> resultCounts = new EnumMap<>(UpdateResult.class);
+    private int skippedFromJournal = 0;
+    private int projectsInOtherShards = 0;
+    private int queuedProjects = 0;
+    private UpdateJournal updateJournal;
+    private Set<String> completedProjectGuids = Collections.emptySet();
+
+    public ScaProjectUpdater(ExecutionParameters executionParameters) {
+        this.seleniumDriverName = executionParameters.getSeleniumDriverName();
+        this.seleniumDriverLocation = executionParameters.getSeleniumDriverLocation();
+        this.veracodeUsername = executionParameters.getVeracodeUsername();
+        this.veracodePassword = executionParameters.getVeracodePassword();
+        this.browserWorkers = executionParameters.getBrowserWorkers();
+        this.browserTabs = executionParameters.getBrowserTabs();
+        this.apiUpdater = executionParameters.isApiUpdateEnabled()
+                ? new ApiDefaultBranchUpdater(executionParameters.getApiCredentials())
+                : null;
+        this.journalPath = executionParameters.getJournalPath().orElse(null);
+        this.isResumeEnabled = executionParameters.isResumeEnabled();
+        this.isScriptedUpdate = executionParameters.isScriptedUpdateEnabled();
+        this.shard = executionParameters.getShard().orElse(null);
+        this.sessionStore = executionParameters.getSessionStorePath()
+                .map(sessionStorePath -> new SessionStore(sessionStorePath, veracodeUsername, veracodePassword))
+                .orElse(null);
+        this.branchPreflight = executionParameters.isBranchPreflightEnabled()
+                ? new BranchPreflight(executionParameters.getApiCredentials())
+                : null;
+        this.browserWorkerSessions = new ScaBrowserWorker[browserWorkers];
+        for (UpdateResult updateResult : UpdateResult.values()) {
+            resultCounts.put(updateResult, new AtomicInteger());
+        }
+    }
 
-    public ScaProjectUpdater(String seleniumDriverName,
-                             String seleniumDriverLocation,
-                             String veracodeUsername,
-                             String veracodePassword) {
-        this.seleniumDriverName = seleniumDriverName;
-        this.seleniumDriverLocation = seleniumDriverLocation;
-        this.veracodeUsername = veracodeUsername;
-        this.veracodePassword = veracodePassword;
+    /*
+     * Produces the workspaces to update, handing each one over as soon as its project list is known.
+     */
+    @FunctionalInterface
+    public interface WorkspaceSource {
+        void produce(Consumer<Workspace> workspaceConsumer);
     }
 
     public void updateDefaultBranches(List<Workspace> workspaceList, String branchName) throws TimeoutException {
+        updateDefaultBranches(workspaceConsumer -> workspaceList.forEach(workspaceConsumer), branchName);
+    }
+
+    /*
+     * The browser workers start before the first workspace is produced, so logging in overlaps with
+     * gathering the projects and every project is updated as soon as it is queued.
+     * The summary and the failure report are logged even when the workers stopped before the end.
+     */
+    public void updateDefaultBranches(WorkspaceSource workspaceSource, String branchName) throws TimeoutException {
         System.setProperty(seleniumDriverName, seleniumDriverLocation);
         if (!Logger.isDebugSelenium) {
             System.setProperty(FirefoxDriver.SystemProperty.DRIVER_USE_MARIONETTE, "true");
             System.setProperty(FirefoxDriver.SystemProperty.BROWSER_LOGFILE, "/dev/null");
         }
-        webDriver = WebDriverProvider.getDriver(seleniumDriverName);
+        resetCounters();
+        openJournal(branchName);
         try {
-            loginToPlatform();
-            workspaceList.forEach(workspace -> updateDefaultBranchesForWorkspace(branchName, workspace));
+            ProjectWorkQueue projectQueue = new ProjectWorkQueue(RETRIES_PER_PROJECT, QUEUE_CAPACITY);
+            runWorkers(projectQueue, workspaceSource, branchName);
         } finally {
-            webDriver.quit();
+            if (updateJournal != null) {
+                updateJournal.close();
+            }
+            logSummary();
+            logProjectsNotUpdated();
         }
+    }
+
+    private void logProjectsNotUpdated() {
         if (!projectsNotUpdated.isEmpty()) {
             Logger.log("Unable to update the following projects: ");
-            Logger.currentLevel++;
+            Logger.increaseIndentation();
             projectsNotUpdated.forEach(project -> {
                 Logger.log("- " + project.getFullName());
-                Logger.currentLevel++;
+                Logger.increaseIndentation();
                 Logger.log(project.getIssueOnUpdate());
-                Logger.currentLevel--;
+                Logger.decreaseIndentation();
             });
-            Logger.currentLevel--;
+            Logger.decreaseIndentation();
         }
     }
 
-    private void updateDefaultBranchesForWorkspace(String branchName, Workspace workspace) {
+    /*
+     * The completed projects are read before the journal is opened for writing, so a rerun
+     * only skips what previous runs finished.
+     */
+    private void openJournal(String branchName) {
+        if (journalPath == null) {
+            return;
+        }
+        try {
+            if (isResumeEnabled) {
+                completedProjectGuids = UpdateJournal.readCompletedProjectGuids(journalPath, branchName);
+                Logger.log("Journal lists " + completedProjectGuids.size() + " projects already updated to " + branchName);
+            }
+            updateJournal = UpdateJournal.open(journalPath);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to open the update journal " + journalPath, e);
+        }
+    }
+
+    /*
+     * The branches of every project of the workspace are requested at once, projects are then queued in order
+     * as soon as their own branch list is known.
+     */
+    private void enqueueWorkspace(Workspace workspace, ProjectWorkQueue projectQueue, String branchName) {
         if (workspace.getProjects().isEmpty()) {
             Logger.log("Skipping workspace " + workspace.getName() + " as it has no projects");
             Logger.printLine();
             return;
         }
-        Logger.log("Updating workspace: " + workspace.getName());
-        Logger.currentLevel++;
-        workspace.getProjects().forEach(project -> {
-            Logger.log("- Updating project: " + project.getName());
-            Logger.currentLevel++;
-            updateDefaultBranchForProject(project, branchName, 0);
-            Logger.printLine();
-            Logger.currentLevel--;
+        int skippedProjects = 0;
+        List<Project> projectsToCheck = new ArrayList<>();
+        List<CompletableFuture<Optional<List<String>>>> pendingBranches = new ArrayList<>();
+        for (Project project : workspace.getProjects()) {
+            if (shard != null && !shard.contains(project)) {
+                projectsInOtherShards++;
+            } else if (completedProjectGuids.contains(project.getGuid())) {
+                skippedProjects++;
+            } else {
+                projectsToCheck.add(project);
+                pendingBranches.add(branchPreflight == null
+                        ? CompletableFuture.completedFuture(Optional.empty())
+                        : branchPreflight.getBranches(project));
+            }
+        }
+        skippedFromJournal += skippedProjects;
+        if (skippedProjects > 0) {
+            Logger.log("Skipping " + skippedProjects + " projects of workspace " + workspace.getName() +
+                    " as the journal lists them as updated");
+        }
+        for (int currentProject = 0; currentProject < projectsToCheck.size(); currentProject++) {
+            Project project = projectsToCheck.get(currentProject);
+            Optional<List<String>> branches = pendingBranches.get(currentProject).join();
+            if (branchPreflight != null && branchPreflight.isBranchMissing(branches, branchName)) {
+                Logger.log("Skipping project " + project.getFullName() + " as it has no branch named " + branchName);
+                project.setIssueOnUpdate("Couldn't find branch named " + branchName + " for project: " +
+                        project.getName() + "\nFound the following options: " + String.join(", ", branches.get()));
+                recordResult(project, branchName, UpdateResult.BRANCH_MISSING);
+            } else if (projectQueue.add(project)) {
+                queuedProjects++;
+            } else {
+                project.setIssueOnUpdate(NO_WORKER_LEFT_ISSUE + project.getName());
+                recordResult(project, branchName, UpdateResult.FAILED);
+            }
+        }
+    }
+
+    /*
+     * Starts one thread per browser worker, all of them pulling from the same queue until every project is done,
+     * while the calling thread fills the queue from the workspace source.
+     * Login failures are only rethrown when no worker was able to process the remaining projects.
+     */
+    private void runWorkers(ProjectWorkQueue projectQueue, WorkspaceSource workspaceSource, String branchName)
+            throws TimeoutException {
+        ExecutorService executorService = Executors.newFixedThreadPool(browserWorkers, runnable -> {
+            Thread thread = new Thread(runnable, "browser-worker");
+            thread.setDaemon(true);
+            return thread;
         });
-        Logger.currentLevel--;
-        Logger.printLine();
+        Throwable workerFailure = null;
+        AtomicInteger runningWorkerCount = new AtomicInteger(browserWorkers);
+        try {
+            List<Future<Void>> runningWorkers = new ArrayList<>();
+            for (int currentWorker = 0; currentWorker < browserWorkers; currentWorker++) {
+                int workerIndex = currentWorker;
+                runningWorkers.add(executorService.submit(() -> {
+                    try {
+                        runWorker(projectQueue, branchName, workerIndex);
+                    } finally {
+                        if (runningWorkerCount.decrementAndGet() == 0) {
+                            projectQueue.abandon();
+                        }
+                    }
+                    return null;
+                }));
+            }
+            try {
+                workspaceSource.produce(workspace -> enqueueWorkspace(workspace, projectQueue, branchName));
+            } finally {
+                projectQueue.finishAdding();
+            }
+            if (shard != null) {
+                Logger.log("Shard " + shard + " has " + queuedProjects + " projects to update, " +
+                        projectsInOtherShards + " belong to other shards");
+            }
+            for (Future<Void> runningWorker : runningWorkers) {
+                try {
+                    runningWorker.get();
+                } catch (ExecutionException e) {
+                    Logger.log("Browser worker stopped: " + e.getCause().getMessage());
+                    workerFailure = e.getCause();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            executorService.shutdownNow();
+        }
+        if (!projectQueue.isFinished()) {
+            for (ProjectWorkQueue.ProjectTask remainingTask : projectQueue.removeRemaining()) {
+                remainingTask.getProject().setIssueOnUpdate(NO_WORKER_LEFT_ISSUE + remainingTask.getProject().getName());
+                completeProject(projectQueue, remainingTask, branchName, UpdateResult.FAILED);
+            }
+            rethrowWorkerFailure(workerFailure);
+        }
     }
 
-    public void updateDefaultBranchForProject(Project project, String branchName, int attempt) {
+    /*
+     * When the API updater is enabled the browser is only started once a project falls back to it.
+     * With more than one worker every line logged by the worker is prefixed with its name.
+     * Projects that timed out are handed back to the queue, which offers them again after a backoff.
+     * Only a lost browser session stops the worker, which then drops its browser, the next call starts a new one.
+     * Any other error is specific to the project, which is recorded as failed while the worker carries on.
+     * With several tabs the worker holds on to the next projects and their pages load while the current
+     * project is being updated, the worker switches to the tab of the current project first so the tab it leaves
+     * can take the next page. Projects still held when the worker stops go back to the queue untouched.
+     */
+    private void runWorker(ProjectWorkQueue projectQueue, String branchName, int workerIndex)
+            throws TimeoutException, InterruptedException {
+        if (browserWorkers > 1) {
+            Logger.setContext("worker " + (workerIndex + 1));
+        }
+        ScaBrowserWorker browserWorker = getBrowserWorker(workerIndex);
+        DefaultBranchUpdater defaultBranchUpdater = apiUpdater == null
+                ? browserWorker
+                : new FallbackDefaultBranchUpdater(apiUpdater, browserWorker);
+        Deque<ProjectWorkQueue.ProjectTask> prefetchedTasks = new ArrayDeque<>();
+        boolean hasFinished = false;
         try {
-            if (!isLoggedIn()) {
-                Logger.debug("Session expired, trying to log back in");
-                loginToPlatform();
+            if (apiUpdater == null && !browserWorker.isStarted()) {
+                browserWorker.start();
             }
-            String projectUrl = AGENT_BASED_BASE_URL + "/workspaces/" + project.getWorkspace().getSiteId() +
-                    "/projects/" + project.getSiteId() + "/issues";
-            webDriver.get(projectUrl);
-            openSettingsMenu();
-            WebElement branchSelectOption =
-                    SeleniumHelper.getElement(webDriver, By.xpath(BRANCH_SELECT_OPTION_XPATH)).orElse(null);
-            if (branchSelectOption == null
-                    || !SeleniumHelper.hasElementRightNow(branchSelectOption, By.xpath("..//div[text()='" + branchName + "']"))) {
-                logMissingBranchName(project, branchName, branchSelectOption);
-                return;
+            Optional<ProjectWorkQueue.ProjectTask> nextTask;
+            while ((nextTask = prefetchedTasks.isEmpty()
+                    ? projectQueue.take()
+                    : Optional.of(prefetchedTasks.poll())).isPresent()) {
+                ProjectWorkQueue.ProjectTask projectTask = nextTask.get();
+                Project project = projectTask.getProject();
+                browserWorker.switchToProject(project);
+                prefetchProjects(projectQueue, browserWorker, prefetchedTasks);
+                Logger.log("- Updating project: " + project.getFullName());
+                UpdateResult updateResult;
+                try {
+                    updateResult = defaultBranchUpdater.updateDefaultBranch(project, branchName);
+                } catch (RuntimeException e) {
+                    if (isBrowserLost(e, browserWorker)) {
+                        //another worker will take the project
+                        if (!projectQueue.retryLater(projectTask)) {
+                            project.setIssueOnUpdate("Unable to update project: " + project.getName());
+                            completeProject(projectQueue, projectTask, branchName, UpdateResult.FAILED);
+                        }
+                        throw e;
+                    }
+                    Logger.log("Error trying to update project: " + project.getFullName());
+                    Logger.debug(e::printStackTrace);
+                    project.setIssueOnUpdate("Unable to update project: " + project.getName() + ", " + e.getMessage());
+                    updateResult = UpdateResult.FAILED;
+                }
+                if (updateResult.isRetryable() && projectQueue.retryLater(projectTask)) {
+                    Logger.log("Will retry " + project.getFullName() + " later (" +
+                            (projectTask.getAttempt() + 1) + "/" + RETRIES_PER_PROJECT + ")");
+                    continue;
+                }
+                completeProject(projectQueue, projectTask, branchName, updateResult);
             }
-            SeleniumHelper.clickElement(webDriver, branchSelectOption, By.xpath("..//div[text()='" + branchName + "']"));
-            SeleniumHelper.clickElement(webDriver, By.xpath(SAVE_BUTTON_XPATH));
-            Logger.log("Successfully set default branch to '" + branchName + "' for project: " + project.getName());
-        } catch (TimeoutException e) {
-            handleTimeout(project, branchName, attempt, e);
+            hasFinished = true;
+        } finally {
+            prefetchedTasks.forEach(projectQueue::putBack);
+            if (!hasFinished) {
+                closeBrowserWorker(workerIndex);
+            }
+            Logger.setContext(null);
         }
     }
 
-    private void handleTimeout(Project project, String branchName, int attempt, TimeoutException e) {
-        if (attempt > MAX_ATTEMPTS_PER_PROJECT) {
-            setProjectAsFailed(project, e);
-        } else {
-            logAndRetry(project, branchName, attempt);
+    /*
+     * Pages are only loaded ahead when the browser is going to update the projects, not while the API does.
+     */
+    private void prefetchProjects(ProjectWorkQueue projectQueue, ScaBrowserWorker browserWorker,
+                                  Deque<ProjectWorkQueue.ProjectTask> prefetchedTasks) {
+        if (apiUpdater != null && apiUpdater.isSupported()) {
+            return;
+        }
+        while (prefetchedTasks.size() < browserTabs - 1) {
+            Optional<ProjectWorkQueue.ProjectTask> prefetchedTask = projectQueue.poll();
+            if (prefetchedTask.isEmpty()) {
+                return;
+            }
+            prefetchedTasks.add(prefetchedTask.get());
+            browserWorker.prefetch(prefetchedTask.get().getProject());
         }
     }
 
-    private void openSettingsMenu() throws TimeoutException {
-        SeleniumHelper.waitForElementPresentAndClickIt(webDriver, By.cssSelector(SETTINGS_BUTTON_CSS_SELECTOR));
-        SeleniumHelper.waitForElementPresentAndClickIt(webDriver, By.xpath(SHOW_BRANCHES_BUTTON_XPATH));
-        waitForLoad();
+    /*
+     * The browser could not be started, was closed or can no longer be reached.
+     */
+    private static boolean isBrowserLost(RuntimeException exception, ScaBrowserWorker browserWorker) {
+        return !browserWorker.isStarted()
+                || exception instanceof NoSuchSessionException
+                || exception instanceof SessionNotCreatedException
+                || exception instanceof UnreachableBrowserException;
     }
 
-    private void logMissingBranchName(Project project, String branchName, WebElement branchSelectOption) {
-        if (branchSelectOption != null && branchSelectOption.getAttribute("innerHTML") != null) {
-            project.setIssueOnUpdate(
-                    "Couldn't find branch named " + branchName + " for project: " + project.getName() +
-                    "\nFound the following options: " + branchSelectOption.getText().replace("\n", ", "));
+    private synchronized ScaBrowserWorker getBrowserWorker(int workerIndex) {
+        if (browserWorkerSessions[workerIndex] == null) {
+            browserWorkerSessions[workerIndex] = new ScaBrowserWorker(seleniumDriverName, veracodeUsername,
+                    veracodePassword, isScriptedUpdate, sessionStore, browserTabs);
+        }
+        return browserWorkerSessions[workerIndex];
+    }
 
+    private synchronized void closeBrowserWorker(int workerIndex) {
+        if (browserWorkerSessions[workerIndex] != null) {
+            browserWorkerSessions[workerIndex].close();
+            browserWorkerSessions[workerIndex] = null;
         }
-        Logger.log("Unable to update project: " + project.getName());
-        projectsNotUpdated.add(project);
     }
 
-    private void setProjectAsFailed(Project project, TimeoutException e) {
-        projectsNotUpdated.add(project);
-        Logger.log("Unable to update project: " + project.getName());
-        project.setIssueOnUpdate("Unable to update project: " + project.getName());
-        Logger.debug(() -> {
-            project.concatenateIssue("Currently on URL: " + webDriver.getCurrentUrl());
-            project.concatenateIssue("With page source: " + webDriver.getPageSource());
-        });
-        Logger.debug(e::printStackTrace);
+    /*
+     * Guids of the projects the last call to updateDefaultBranches could not update.
+     */
+    public Set<String> getNotUpdatedProjectGuids() {
+        return projectsNotUpdated.stream()
+                .map(Project::getGuid)
+                .collect(Collectors.toSet());
     }
 
-    private void logAndRetry(Project project, String branchName, int attempt) {
-        Logger.log("Error trying to update project: " + project.getName());
-        Logger.log("Will retry after 1 second");
-        try {
-            TimeUnit.SECONDS.sleep(1);
-        } catch (InterruptedException ie) {
-            //nothing to do here
+    @Override
+    public void close() {
+        for (int workerIndex = 0; workerIndex < browserWorkers; workerIndex++) {
+            closeBrowserWorker(workerIndex);
         }
-        Logger.log("Retrying (" + attempt + "/" + MAX_ATTEMPTS_PER_PROJECT + ")");
-        updateDefaultBranchForProject(project, branchName, ++attempt);
     }
 
-    private boolean isLoggedIn() {
-        webDriver.get("https://sca.analysiscenter.veracode.com/portfolio");
-        return SeleniumHelper.hasElement(webDriver, By.xpath(AGENT_BASED_SCAN_SETTINGS_BUTTON_XPATH));
+    private void resetCounters() {
+        projectsNotUpdated.clear();
+        resultCounts.values().forEach(resultCount -> resultCount.set(0));
+        skippedFromJournal = 0;
+        projectsInOtherShards = 0;
+        queuedProjects = 0;
     }
 
-    private void waitForLoad() throws TimeoutException {
-        boolean hasLoaded = false;
-        Instant start = Instant.now();
-        while (!hasLoaded) {
-            WebElement branchSelectOption =
-                    SeleniumHelper.getElement(webDriver, By.xpath(BRANCH_SELECT_OPTION_XPATH)).orElse(null);
-            if (branchSelectOption != null) {
-                hasLoaded = !SeleniumHelper.hasElementRightNow(branchSelectOption, By.xpath("..//div[text()='Loading...']"));
-            }
-            if (!hasLoaded) {
-                SeleniumHelper.checkTimeout(start, webDriver);
-            }
+    private void completeProject(ProjectWorkQueue projectQueue, ProjectWorkQueue.ProjectTask projectTask,
+                                 String branchName, UpdateResult updateResult) {
+        Project project = projectTask.getProject();
+        if (updateResult.isRetryable()) {
+            Logger.log("Giving up on project " + project.getFullName() + " after " +
+                    (projectTask.getAttempt() + 1) + " attempts");
+        }
+        recordResult(project, branchName, updateResult);
+        projectQueue.complete(projectTask);
+    }
+
+    private void recordResult(Project project, String branchName, UpdateResult updateResult) {
+        resultCounts.get(updateResult).incrementAndGet();
+        if (updateJournal != null) {
+            updateJournal.record(project, branchName, updateResult);
+        }
+        if (!updateResult.isSuccessful()) {
+            projectsNotUpdated.add(project);
         }
     }
 
-    private void loginToPlatform() throws TimeoutException {
-        Logger.log("Logging into the Veracode platform");
-        webDriver.get(LOGIN_URL);
-        webDriver.manage().window().setSize(new Dimension(1920, 1080));
-        SeleniumHelper.waitForElementPresent(webDriver, By.id(LOGIN_BUTTON_ID));
-        webDriver.findElement(By.id(USERNAME_FIELD_ID)).sendKeys(veracodeUsername);
-        webDriver.findElement(By.id(PASSWORD_FIELD_ID)).sendKeys(veracodePassword);
-        SeleniumHelper.clickElement(webDriver, By.id(LOGIN_BUTTON_ID));
-        SeleniumHelper.waitForElementPresent(webDriver, By.id(USER_NAME_ICON_ID));
-        Logger.log("Logged into the Veracode platform");
-        Logger.debug("Landed on URL: " + webDriver.getCurrentUrl());
+    private void logSummary() {
+        int notUpdated = resultCounts.entrySet().stream()
+                .filter(resultCount -> !resultCount.getKey().isSuccessful())
+                .mapToInt(resultCount -> resultCount.getValue().get())
+                .sum();
+        Logger.printLine();
+        Logger.log("Updated: " + resultCounts.get(UpdateResult.UPDATED).get() +
+                ", already on the branch: " + resultCounts.get(UpdateResult.UNCHANGED).get() +
+                ", skipped from the journal: " + skippedFromJournal +
+                ", not updated: " + notUpdated);
+    }
+
+    private static void rethrowWorkerFailure(Throwable workerFailure) throws TimeoutException {
+        if (workerFailure instanceof TimeoutException) {
+            throw (TimeoutException) workerFailure;
+        }
+        if (workerFailure instanceof RuntimeException) {
+            throw (RuntimeException) workerFailure;
+        }
+        throw new IllegalStateException("No browser worker was able to update the remaining projects", workerFailure);
     }
 }
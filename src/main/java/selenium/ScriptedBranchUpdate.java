@@ -0,0 +1,117 @@
+package selenium;
+
+import org.openqa.selenium.JavascriptException;
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.ScriptTimeoutException;
+import org.openqa.selenium.WebDriver;
+import util.Logger;
+import util.Project;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Opens the agent-based scan settings, waits for the branch list, picks the branch and saves it from a single
+ * asynchronous script running inside the page, so a project costs one driver call instead of a dozen.
+ * Uses the same elements as the step by step update in ScaBrowserWorker.
+ */
+public final class ScriptedBranchUpdate {
+    private static final long PAGE_TIMEOUT_MILLISECONDS = TimeUnit.SECONDS.toMillis(30);
+    private static final long SCRIPT_TIMEOUT_MILLISECONDS = PAGE_TIMEOUT_MILLISECONDS + TimeUnit.SECONDS.toMillis(10);
+    private static final String STATUS_KEY = "status";
+    private static final String BRANCHES_KEY = "branches";
+    private static final String UPDATE_SCRIPT = """
+            var settingsSelector = arguments[0], showBranchesXpath = arguments[1], currentBranchXpath = arguments[2],
+                menuXpath = arguments[3], saveButtonXpath = arguments[4], branchName = arguments[5],
+                deadline = Date.now() + arguments[6], done = arguments[arguments.length - 1];
+            function byXpath(xpath) {
+                return document.evaluate(xpath, document, null, XPathResult.FIRST_ORDERED_NODE_TYPE, null).singleNodeValue;
+            }
+            function hasText(element, text) {
+                return Array.prototype.some.call(element.childNodes, function (child) {
+                    return child.nodeType === Node.TEXT_NODE && child.nodeValue === text;
+                });
+            }
+            function findOption(menu, text) {
+                return Array.prototype.find.call(menu.parentNode.querySelectorAll('div'), function (option) {
+                    return hasText(option, text);
+                });
+            }
+            function press(element) {
+                ['mousedown', 'mouseup', 'click'].forEach(function (type) {
+                    element.dispatchEvent(new MouseEvent(type, {bubbles: true, cancelable: true, view: window, button: 0}));
+                });
+            }
+            function waitFor(check, next) {
+                var found = check();
+                if (found) {
+                    next(found);
+                } else if (Date.now() > deadline || location.href.indexOf('/login?logout') >= 0) {
+                    done({status: 'TIMED_OUT'});
+                } else {
+                    setTimeout(function () { waitFor(check, next); }, 25);
+                }
+            }
+            waitFor(function () { return document.querySelector(settingsSelector); }, function (settingsButton) {
+                press(settingsButton);
+                waitFor(function () { return byXpath(showBranchesXpath); }, function (showBranchesButton) {
+                    var currentBranch = byXpath(currentBranchXpath);
+                    if (currentBranch && currentBranch.textContent.trim() === branchName) {
+                        done({status: 'UNCHANGED'});
+                        return;
+                    }
+                    press(showBranchesButton);
+                    waitFor(function () {
+                        var menu = byXpath(menuXpath);
+                        return menu && !findOption(menu, 'Loading...') ? menu : null;
+                    }, function (menu) {
+                        var option = findOption(menu, branchName);
+                        if (!option) {
+                            done({status: 'BRANCH_MISSING', branches: menu.innerText});
+                            return;
+                        }
+                        press(option);
+                        waitFor(function () { return byXpath(saveButtonXpath); }, function (saveButton) {
+                            press(saveButton);
+                            done({status: 'UPDATED'});
+                        });
+                    });
+                });
+            });
+            """;
+
+    private ScriptedBranchUpdate() {
+        throw new IllegalStateException("This class should not be instantiated");
+    }
+
+    /*
+     * Expects the project page to be open already.
+     */
+    public static UpdateResult run(WebDriver webDriver, Project project, String branchName,
+                                   String settingsButtonSelector, String showBranchesXpath,
+                                   String currentBranchXpath, String branchMenuXpath, String saveButtonXpath) {
+        webDriver.manage().timeouts().setScriptTimeout(SCRIPT_TIMEOUT_MILLISECONDS, TimeUnit.MILLISECONDS);
+        Object scriptResult;
+        try {
+            scriptResult = ((JavascriptExecutor) webDriver).executeAsyncScript(UPDATE_SCRIPT,
+                    settingsButtonSelector, showBranchesXpath, currentBranchXpath, branchMenuXpath, saveButtonXpath,
+                    branchName, PAGE_TIMEOUT_MILLISECONDS);
+        } catch (ScriptTimeoutException | JavascriptException e) {
+            Logger.debug(e::printStackTrace);
+            scriptResult = null;
+        }
+        if (!(scriptResult instanceof Map)) {
+            project.setIssueOnUpdate("Unable to update project: " + project.getName());
+            return UpdateResult.TIMED_OUT;
+        }
+        Map<?, ?> result = (Map<?, ?>) scriptResult;
+        UpdateResult updateResult = UpdateResult.valueOf(String.valueOf(result.get(STATUS_KEY)));
+        if (updateResult == UpdateResult.BRANCH_MISSING) {
+            project.setIssueOnUpdate("Couldn't find branch named " + branchName + " for project: " + project.getName() +
+                    "\nFound the following options: " + String.valueOf(result.get(BRANCHES_KEY)).replace("\n", ", "));
+        } else if (updateResult == UpdateResult.TIMED_OUT) {
+            project.setIssueOnUpdate("Unable to update project: " + project.getName());
+        }
+        return updateResult;
+    }
+}
@@ -3,16 +3,11 @@ package selenium;
 import org.openqa.selenium.*;
 import org.openqa.selenium.support.ui.Select;
 
-import java.time.Duration;
-import java.time.Instant;
 import java.util.Optional;
-import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 import java.util.function.Predicate;
 
 public final class SeleniumHelper {
-    private static final int POLLING_TIMEOUT = 30;
-
     private SeleniumHelper() {
         throw new IllegalStateException("This class should not be instantiated");
     }
@@ -46,66 +41,52 @@ public final class SeleniumHelper {
 
     private static void waitForElementPresent(WebDriver webDriver, WebElement parentElement, By elementToCheck) throws TimeoutException {
         boolean hasFound = false;
-        Instant start = Instant.now();
+        PollingWait pollingWait = new PollingWait(webDriver);
         while (!hasFound) {
             try {
                 parentElement.findElement(elementToCheck);
                 hasFound = true;
             } catch (NoSuchElementException notFound) {
-                checkTimeout(start, webDriver);
+                pollingWait.pause();
             }
         }
     }
 
     public static void waitForElementPresent(WebDriver webDriver, By elementToCheck) throws TimeoutException {
         boolean hasFound = false;
-        Instant start = Instant.now();
+        PollingWait pollingWait = new PollingWait(webDriver);
         while (!hasFound) {
             try {
                 webDriver.findElement(elementToCheck);
                 hasFound = true;
             } catch (NoSuchElementException notFound) {
-                checkTimeout(start, webDriver);
+                pollingWait.pause();
             }
         }
     }
 
-    public static void checkTimeout(Instant start, WebDriver webDriver) throws TimeoutException {
-        if (getTimeElapsed(start) > POLLING_TIMEOUT) {
-            timeout();
-        }
-        if (webDriver != null && webDriver.getCurrentUrl().contains("/login?logout")) {
-            timeout();
-        }
-        try {
-            TimeUnit.SECONDS.sleep(1);
-        } catch (InterruptedException e) {
-            //nothing to do here
-        }
-    }
-
     public static void clickElement(WebDriver webDriver, By elementToClick) throws TimeoutException {
         boolean hasFound = false;
-        Instant start = Instant.now();
+        PollingWait pollingWait = new PollingWait(webDriver);
         while (!hasFound) {
             try {
                 webDriver.findElement(elementToClick).click();
                 hasFound = true;
             } catch (ElementNotInteractableException | NoSuchElementException notFound) {
-                checkTimeout(start, webDriver);
+                pollingWait.pause();
             }
         }
     }
 
     public static void clickElement(WebDriver webDriver, WebElement parentElement, By elementToClick) throws TimeoutException {
         boolean hasFound = false;
-        Instant start = Instant.now();
+        PollingWait pollingWait = new PollingWait(webDriver);
         while (!hasFound) {
             try {
                 parentElement.findElement(elementToClick).click();
                 hasFound = true;
             } catch (ElementNotInteractableException | NoSuchElementException notFound) {
-                checkTimeout(start, webDriver);
+                pollingWait.pause();
             }
         }
     }
@@ -113,35 +94,27 @@ public final class SeleniumHelper {
     public static void selectOptionByVisibleText(WebDriver webDriver, By elementToSelect,
                                                  String textToSelect) throws TimeoutException {
         boolean hasFound = false;
-        Instant start = Instant.now();
+        PollingWait pollingWait = new PollingWait(webDriver);
         WebElement foundElement = null;
         while (!hasFound) {
             try {
                 foundElement = webDriver.findElement(elementToSelect);
                 hasFound = true;
             } catch (ElementNotInteractableException notFound) {
-                checkTimeout(start, webDriver);
+                pollingWait.pause();
             }
         }
         new Select(foundElement).selectByVisibleText(textToSelect);
     }
 
-    private static void timeout() throws TimeoutException {
-        throw new TimeoutException("Timed out when running command");
-    }
-
-    private static long getTimeElapsed(Instant start) {
-        return Duration.between(start, Instant.now()).getSeconds();
-    }
-
     public static Optional<WebElement> getElement(WebDriver webDriver, By elementToGet) throws TimeoutException {
-        Instant start = Instant.now();
+        PollingWait pollingWait = new PollingWait(webDriver);
         while (true) {
             try {
                 return Optional.ofNullable(webDriver.findElement(elementToGet));
             } catch (ElementNotInteractableException notFound) {
                 try {
-                    checkTimeout(start, webDriver);
+                    pollingWait.pause();
                 } catch (TimeoutException timeout) {
                     return Optional.empty();
                 }
@@ -162,17 +135,20 @@ public final class SeleniumHelper {
     private static void waitForConditionInternal(WebDriver webDriver, By elementToCheck,
                                                  Predicate<WebElement> webElementPredicate,
                                                  boolean failOnMissingElement) throws TimeoutException {
-        Instant start = Instant.now();
+        PollingWait pollingWait = new PollingWait(webDriver);
         boolean isAwaitingCondition = true;
         while (isAwaitingCondition) {
             try {
                 WebElement foundElement = webDriver.findElement(elementToCheck);
                 isAwaitingCondition = !webElementPredicate.test(foundElement);
+                if (isAwaitingCondition) {
+                    pollingWait.pause();
+                }
             } catch (ElementNotInteractableException notFound) {
-                checkTimeout(start, webDriver);
+                pollingWait.pause();
             } catch (NoSuchElementException nonExisting) {
                 if (failOnMissingElement) {
-                    checkTimeout(start, webDriver);
+                    pollingWait.pause();
                 } else {
                     isAwaitingCondition = false;
                 }
@@ -0,0 +1,195 @@
+package selenium;
+
+import org.openqa.selenium.Cookie;
+import util.Logger;
+
+import javax.crypto.Cipher;
+import javax.crypto.SecretKey;
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.PBEKeySpec;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/*
+ * Platform cookies of the last logged in browser, kept on disk so new browsers can skip the login form.
+ * The file is encrypted with AES-GCM under a key derived from the Veracode password (PBKDF2), the username is
+ * authenticated with it, so a store written for another account or with another password is never restored.
+ * Layout: magic, version, salt, IV, then the encrypted cookie list.
+ */
+public final class SessionStore {
+    private static final int STORE_MAGIC = 0x53434B53;
+    private static final int STORE_VERSION = 1;
+    private static final String KEY_DERIVATION_ALGORITHM = "PBKDF2WithHmacSHA256";
+    private static final int KEY_DERIVATION_ITERATIONS = 210_000;
+    private static final int KEY_LENGTH_BITS = 256;
+    private static final String CIPHER_TRANSFORMATION = "AES/GCM/NoPadding";
+    private static final int TAG_LENGTH_BITS = 128;
+    private static final int SALT_LENGTH = 16;
+    private static final int IV_LENGTH = 12;
+
+    private final Path storePath;
+    private final String veracodeUsername;
+    private final char[] veracodePassword;
+    private final SecureRandom secureRandom = new SecureRandom();
+    private byte[] salt;
+    private SecretKey secretKey;
+
+    public SessionStore(Path storePath, String veracodeUsername, String veracodePassword) {
+        this.storePath = storePath;
+        this.veracodeUsername = veracodeUsername;
+        this.veracodePassword = veracodePassword.toCharArray();
+    }
+
+    /*
+     * Returns the cookies that have not expired yet, or nothing when there is no store or it cannot be decrypted,
+     * in which case the browser simply logs in.
+     */
+    public synchronized Set<Cookie> load() {
+        Set<Cookie> cookies = new LinkedHashSet<>();
+        try (DataInputStream input = new DataInputStream(Files.newInputStream(storePath))) {
+            if (input.readInt() != STORE_MAGIC || input.readInt() != STORE_VERSION) {
+                Logger.log("Ignoring session store with an unknown format: " + storePath);
+                return cookies;
+            }
+            byte[] storedSalt = input.readNBytes(SALT_LENGTH);
+            byte[] iv = input.readNBytes(IV_LENGTH);
+            byte[] encryptedCookies = input.readAllBytes();
+            Cipher cipher = Cipher.getInstance(CIPHER_TRANSFORMATION);
+            cipher.init(Cipher.DECRYPT_MODE, getKey(storedSalt), new GCMParameterSpec(TAG_LENGTH_BITS, iv));
+            cipher.updateAAD(veracodeUsername.getBytes(StandardCharsets.UTF_8));
+            readCookies(cipher.doFinal(encryptedCookies), cookies);
+        } catch (NoSuchFileException e) {
+            return cookies;
+        } catch (IOException | GeneralSecurityException e) {
+            Logger.log("Unable to restore the browser session from: " + storePath);
+            Logger.debug(e::printStackTrace);
+            cookies.clear();
+        }
+        return cookies;
+    }
+
+    /*
+     * Written to a temporary file first, so an interrupted run never leaves a truncated store behind.
+     */
+    public synchronized void save(Set<Cookie> cookies) {
+        Path temporaryPath = storePath.resolveSibling(storePath.getFileName() + ".tmp");
+        try {
+            if (salt == null) {
+                getKey(randomBytes(SALT_LENGTH));
+            }
+            byte[] iv = randomBytes(IV_LENGTH);
+            Cipher cipher = Cipher.getInstance(CIPHER_TRANSFORMATION);
+            cipher.init(Cipher.ENCRYPT_MODE, secretKey, new GCMParameterSpec(TAG_LENGTH_BITS, iv));
+            cipher.updateAAD(veracodeUsername.getBytes(StandardCharsets.UTF_8));
+            byte[] encryptedCookies = cipher.doFinal(writeCookies(cookies));
+            try (DataOutputStream output = new DataOutputStream(Files.newOutputStream(temporaryPath))) {
+                output.writeInt(STORE_MAGIC);
+                output.writeInt(STORE_VERSION);
+                output.write(salt);
+                output.write(iv);
+                output.write(encryptedCookies);
+            }
+            restrictToOwner(temporaryPath);
+            Files.move(temporaryPath, storePath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException | GeneralSecurityException e) {
+            Logger.log("Unable to save the browser session to: " + storePath);
+            Logger.debug(e::printStackTrace);
+        }
+    }
+
+    /*
+     * Deriving the key is deliberately slow, so it is only done again when the salt changes.
+     */
+    private SecretKey getKey(byte[] keySalt) throws GeneralSecurityException {
+        if (secretKey == null || !Arrays.equals(salt, keySalt)) {
+            PBEKeySpec keySpec = new PBEKeySpec(veracodePassword, keySalt, KEY_DERIVATION_ITERATIONS, KEY_LENGTH_BITS);
+            try {
+                byte[] keyBytes = SecretKeyFactory.getInstance(KEY_DERIVATION_ALGORITHM).generateSecret(keySpec).getEncoded();
+                secretKey = new SecretKeySpec(keyBytes, "AES");
+                salt = keySalt;
+            } finally {
+                keySpec.clearPassword();
+            }
+        }
+        return secretKey;
+    }
+
+    private byte[] randomBytes(int length) {
+        byte[] bytes = new byte[length];
+        secureRandom.nextBytes(bytes);
+        return bytes;
+    }
+
+    private static void restrictToOwner(Path path) throws IOException {
+        try {
+            Files.setPosixFilePermissions(path, PosixFilePermissions.fromString("rw-------"));
+        } catch (UnsupportedOperationException e) {
+            //not a POSIX file system, the file keeps the default permissions
+        }
+    }
+
+    private static byte[] writeCookies(Set<Cookie> cookies) throws IOException {
+        ByteArrayOutputStream cookieBytes = new ByteArrayOutputStream();
+        try (DataOutputStream output = new DataOutputStream(cookieBytes)) {
+            output.writeInt(cookies.size());
+            for (Cookie cookie : cookies) {
+                output.writeUTF(cookie.getName());
+                output.writeUTF(cookie.getValue());
+                writeOptionalString(output, cookie.getDomain());
+                writeOptionalString(output, cookie.getPath());
+                output.writeLong(cookie.getExpiry() == null ? -1 : cookie.getExpiry().getTime());
+                output.writeBoolean(cookie.isSecure());
+                output.writeBoolean(cookie.isHttpOnly());
+            }
+        }
+        return cookieBytes.toByteArray();
+    }
+
+    private static void readCookies(byte[] cookieBytes, Set<Cookie> cookies) throws IOException {
+        long now = System.currentTimeMillis();
+        try (DataInputStream input = new DataInputStream(new ByteArrayInputStream(cookieBytes))) {
+            int cookieCount = input.readInt();
+            for (int currentCookie = 0; currentCookie < cookieCount; currentCookie++) {
+                String name = input.readUTF();
+                String value = input.readUTF();
+                String domain = readOptionalString(input);
+                String path = readOptionalString(input);
+                long expiry = input.readLong();
+                boolean isSecure = input.readBoolean();
+                boolean isHttpOnly = input.readBoolean();
+                if (expiry < 0 || expiry > now) {
+                    cookies.add(new Cookie(name, value, domain, path, expiry < 0 ? null : new Date(expiry),
+                            isSecure, isHttpOnly));
+                }
+            }
+        }
+    }
+
+    private static String readOptionalString(DataInputStream input) throws IOException {
+        return input.readBoolean() ? input.readUTF() : null;
+    }
+
+    private static void writeOptionalString(DataOutputStream output, String value) throws IOException {
+        output.writeBoolean(value != null);
+        if (value != null) {
+            output.writeUTF(value);
+        }
+    }
+}
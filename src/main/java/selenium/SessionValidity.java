@@ -0,0 +1,66 @@
+package selenium;
+
+import org.openqa.selenium.Cookie;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Date;
+import java.util.Objects;
+import java.util.Set;
+
+/*
+ * What a browser worker knows about its Veracode session without asking the browser.
+ * The session is trusted while it was used recently and none of its cookies is about to expire,
+ * otherwise the worker checks it against the platform before using it.
+ */
+class SessionValidity {
+    private static final Duration MAXIMUM_IDLE_TIME = Duration.ofMinutes(10);
+    private static final Duration EXPIRY_MARGIN = Duration.ofMinutes(1);
+    private static final String LOGIN_URL_FRAGMENT = "/login";
+
+    private Instant lastSuccessfulAction;
+    private Instant earliestCookieExpiry;
+
+    /*
+     * Called after logging in or after confirming the session, with the cookies the browser holds at that time.
+     */
+    void confirm(Set<Cookie> cookies) {
+        lastSuccessfulAction = Instant.now();
+        earliestCookieExpiry = cookies.stream()
+                .map(Cookie::getExpiry)
+                .filter(Objects::nonNull)
+                .map(Date::toInstant)
+                .filter(lastSuccessfulAction::isBefore)
+                .min(Instant::compareTo)
+                .orElse(null);
+    }
+
+    void markActive() {
+        if (lastSuccessfulAction != null) {
+            lastSuccessfulAction = Instant.now();
+        }
+    }
+
+    void invalidate() {
+        lastSuccessfulAction = null;
+        earliestCookieExpiry = null;
+    }
+
+    boolean isLikelyValid() {
+        if (lastSuccessfulAction == null) {
+            return false;
+        }
+        Instant now = Instant.now();
+        if (Duration.between(lastSuccessfulAction, now).compareTo(MAXIMUM_IDLE_TIME) > 0) {
+            return false;
+        }
+        return earliestCookieExpiry == null || now.plus(EXPIRY_MARGIN).isBefore(earliestCookieExpiry);
+    }
+
+    /*
+     * The platform sends expired sessions back to the login page, either directly or through /login?logout.
+     */
+    static boolean isLoginPage(String currentUrl) {
+        return currentUrl != null && currentUrl.contains(LOGIN_URL_FRAGMENT);
+    }
+}
@@ -0,0 +1,235 @@
+package selenium;
+
+import util.Logger;
+import util.Project;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/*
+ * Append-only record of every project outcome, one tab separated line per project:
+ * timestamp, project guid, branch, result, project full name, issue.
+ * Writes are forced to disk in batches, so a crash loses at most the last batch and those
+ * projects are simply updated again on the next run.
+ */
+public final class UpdateJournal implements AutoCloseable {
+    private static final int RECORDS_PER_SYNC = 25;
+    private static final long MILLISECONDS_PER_SYNC = 1000;
+    private static final int FIELD_COUNT = 6;
+
+    private final FileChannel journalChannel;
+    private int recordsSinceSync = 0;
+    private long lastSyncTime = System.currentTimeMillis();
+
+    public static final class Entry {
+        private final Instant timestamp;
+        private final String projectGuid;
+        private final String branchName;
+        private final UpdateResult updateResult;
+        private final String projectFullName;
+        private final String issue;
+
+        private Entry(Instant timestamp, String projectGuid, String branchName, UpdateResult updateResult,
+                      String projectFullName, String issue) {
+            this.timestamp = timestamp;
+            this.projectGuid = projectGuid;
+            this.branchName = branchName;
+            this.updateResult = updateResult;
+            this.projectFullName = projectFullName;
+            this.issue = issue;
+        }
+
+        public Instant getTimestamp() {
+            return timestamp;
+        }
+
+        public String getProjectGuid() {
+            return projectGuid;
+        }
+
+        public String getBranchName() {
+            return branchName;
+        }
+
+        public UpdateResult getUpdateResult() {
+            return updateResult;
+        }
+
+        public String getProjectFullName() {
+            return projectFullName;
+        }
+
+        public String getIssue() {
+            return issue;
+        }
+    }
+
+    private UpdateJournal(FileChannel journalChannel) {
+        this.journalChannel = journalChannel;
+    }
+
+    /*
+     * A crash can leave the last line without its line break, it is ended first so the next record
+     * does not get glued to it and thrown away with it when the journal is read.
+     */
+    public static UpdateJournal open(Path journalPath) throws IOException {
+        FileChannel journalChannel = FileChannel.open(journalPath,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        try {
+            if (!endsWithLineBreak(journalPath)) {
+                ByteBuffer lineBreak = ByteBuffer.wrap(new byte[]{'\n'});
+                while (lineBreak.hasRemaining()) {
+                    journalChannel.write(lineBreak);
+                }
+            }
+        } catch (IOException e) {
+            journalChannel.close();
+            throw e;
+        }
+        return new UpdateJournal(journalChannel);
+    }
+
+    /*
+     * Starts a new journal, anything already written at the path is replaced.
+     */
+    public static UpdateJournal create(Path journalPath) throws IOException {
+        return new UpdateJournal(FileChannel.open(journalPath,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING));
+    }
+
+    private static boolean endsWithLineBreak(Path journalPath) throws IOException {
+        try (FileChannel readChannel = FileChannel.open(journalPath, StandardOpenOption.READ)) {
+            long size = readChannel.size();
+            if (size == 0) {
+                return true;
+            }
+            ByteBuffer lastByte = ByteBuffer.allocate(1);
+            readChannel.read(lastByte, size - 1);
+            return lastByte.get(0) == '\n';
+        }
+    }
+
+    public void record(Project project, String branchName, UpdateResult updateResult) {
+        record(new Entry(Instant.now(), project.getGuid(), branchName, updateResult, project.getFullName(),
+                updateResult.isSuccessful() ? "" : project.getIssueOnUpdate()));
+    }
+
+    public synchronized void record(Entry entry) {
+        String line = String.join("\t",
+                entry.timestamp.toString(),
+                escape(entry.projectGuid),
+                escape(entry.branchName),
+                entry.updateResult.name(),
+                escape(entry.projectFullName),
+                escape(entry.issue)) + "\n";
+        try {
+            ByteBuffer lineBytes = ByteBuffer.wrap(line.getBytes(StandardCharsets.UTF_8));
+            while (lineBytes.hasRemaining()) {
+                journalChannel.write(lineBytes);
+            }
+            recordsSinceSync++;
+            if (recordsSinceSync >= RECORDS_PER_SYNC
+                    || System.currentTimeMillis() - lastSyncTime >= MILLISECONDS_PER_SYNC) {
+                sync();
+            }
+        } catch (IOException e) {
+            Logger.log("Unable to write to the update journal for project: " + entry.projectFullName);
+            Logger.debug(e::printStackTrace);
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        try {
+            sync();
+            journalChannel.close();
+        } catch (IOException e) {
+            Logger.log("Unable to close the update journal");
+            Logger.debug(e::printStackTrace);
+        }
+    }
+
+    private void sync() throws IOException {
+        journalChannel.force(false);
+        recordsSinceSync = 0;
+        lastSyncTime = System.currentTimeMillis();
+    }
+
+    /*
+     * Every complete line of the journal, a line cut short by a crash is ignored.
+     */
+    public static List<Entry> read(Path journalPath) throws IOException {
+        List<Entry> entries = new ArrayList<>();
+        try (BufferedReader reader = Files.newBufferedReader(journalPath, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] fields = line.split("\t", -1);
+                if (fields.length != FIELD_COUNT) {
+                    Logger.debug("Ignoring incomplete journal line: %s", line);
+                    continue;
+                }
+                try {
+                    entries.add(new Entry(Instant.parse(fields[0]), unescape(fields[1]), unescape(fields[2]),
+                            UpdateResult.valueOf(fields[3]), unescape(fields[4]), unescape(fields[5])));
+                } catch (RuntimeException e) {
+                    Logger.debug("Ignoring unreadable journal line: %s", line);
+                }
+            }
+        } catch (NoSuchFileException e) {
+            return entries;
+        }
+        return entries;
+    }
+
+    /*
+     * Guids of the projects whose latest outcome for the given branch was successful.
+     */
+    public static Set<String> readCompletedProjectGuids(Path journalPath, String branchName) throws IOException {
+        Map<String, UpdateResult> latestResults = new HashMap<>();
+        read(journalPath).stream()
+                .filter(entry -> branchName.equals(entry.getBranchName()))
+                .forEach(entry -> latestResults.put(entry.getProjectGuid(), entry.getUpdateResult()));
+        Set<String> completedProjectGuids = new HashSet<>();
+        latestResults.forEach((projectGuid, updateResult) -> {
+            if (updateResult.isSuccessful()) {
+                completedProjectGuids.add(projectGuid);
+            }
+        });
+        return completedProjectGuids;
+    }
+
+    private static String escape(String value) {
+        if (value == null) {
+            return "";
+        }
+        return value.replace("\\", "\\\\").replace("\t", "\\t").replace("\n", "\\n").replace("\r", "\\r");
+    }
+
+    private static String unescape(String value) {
+        StringBuilder unescaped = new StringBuilder(value.length());
+        for (int index = 0; index < value.length(); index++) {
+            char current = value.charAt(index);
+            if (current == '\\' && index + 1 < value.length()) {
+                char escaped = value.charAt(++index);
+                unescaped.append(escaped == 't' ? '\t' : escaped == 'n' ? '\n' : escaped == 'r' ? '\r' : escaped);
+            } else {
+                unescaped.append(current);
+            }
+        }
+        return unescaped.toString();
+    }
+}
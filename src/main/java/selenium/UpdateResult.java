@@ -0,0 +1,18 @@
+package selenium;
+
+public enum UpdateResult {
+    UPDATED,
+    UNCHANGED,
+    BRANCH_MISSING,
+    UNSUPPORTED,
+    TIMED_OUT,
+    FAILED;
+
+    public boolean isSuccessful() {
+        return this == UPDATED || this == UNCHANGED;
+    }
+
+    public boolean isRetryable() {
+        return this == TIMED_OUT;
+    }
+}
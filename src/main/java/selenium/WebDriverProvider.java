@@ -8,6 +8,7 @@ import org.openqa.selenium.firefox.FirefoxOptions;
 
 public class WebDriverProvider {
     public static boolean isHeadless = true;
+    public static boolean isLeanProfile = false;
     private static final String CHROME_DRIVER = "webdriver.chrome.driver";
     private static final String FIREFOX_DRIVER = "webdriver.gecko.driver";
 
@@ -24,6 +25,9 @@ public class WebDriverProvider {
     private static WebDriver getFirefoxDriver() {
         FirefoxOptions firefoxOptions = new FirefoxOptions();
         firefoxOptions.setHeadless(isHeadless);
+        if (isLeanProfile) {
+            LeanBrowserProfile.applyTo(firefoxOptions);
+        }
         return new FirefoxDriver(firefoxOptions);
     }
 
@@ -32,6 +36,9 @@ public class WebDriverProvider {
         if (isHeadless) {
             chromeOptions.addArguments("--headless");
         }
+        if (isLeanProfile) {
+            LeanBrowserProfile.applyTo(chromeOptions);
+        }
         return new ChromeDriver(chromeOptions);
     }
 }
@@ -1,8 +1,9 @@
 package util;
 
-public class ApiCredentials {
+public final class ApiCredentials {
     private final String apiId;
     private final String apiKey;
+    private final HmacRequestSigner requestSigner;
 
     public ApiCredentials(String apiId, String apiKey) {
         if (apiId == null || apiId.trim().isEmpty()) {
@@ -13,6 +14,7 @@ public class ApiCredentials {
         }
         this.apiId = apiId;
         this.apiKey = apiKey;
+        this.requestSigner = new HmacRequestSigner(this);
     }
 
     public String getApiId() {
@@ -22,4 +24,8 @@ public class ApiCredentials {
     public String getApiKey() {
         return this.apiKey;
     }
+
+    public HmacRequestSigner getRequestSigner() {
+        return this.requestSigner;
+    }
 }
@@ -2,23 +2,16 @@ package util;
 
 import javax.crypto.Mac;
 import javax.crypto.spec.SecretKeySpec;
-import javax.xml.bind.DatatypeConverter;
-import java.io.UnsupportedEncodingException;
 import java.net.URL;
+import java.nio.charset.StandardCharsets;
 import java.security.InvalidKeyException;
 import java.security.NoSuchAlgorithmException;
 import java.security.SecureRandom;
-import java.util.Locale;
 
 public final class HmacRequestSigner {
     // Included in the signature to inform Veracode of the signature version.
-    private static final String VERACODE_REQUEST_VERSION_STRING = "vcode_request_version_1";
-
-    // Expected format for the unencrypted data string.
-    private static final String DATA_FORMAT = "id=%s&host=%s&url=%s&method=%s";
-
-    // Expected format for the Authorization header.
-    private static final String HEADER_FORMAT = "%s id=%s,ts=%s,nonce=%s,sig=%s";
+    private static final byte[] VERACODE_REQUEST_VERSION_BYTES =
+            "vcode_request_version_1".getBytes(StandardCharsets.UTF_8);
 
     // Expect prefix to the Authorization header.
     private static final String VERACODE_HMAC_SHA_256 = "VERACODE-HMAC-SHA-256";
@@ -26,75 +19,138 @@ public final class HmacRequestSigner {
     // HMAC encryption algorithm.
     private static final String HMAC_SHA_256 = "HmacSHA256";
 
-    // Charset to use when encrypting a string.
-    private static final String UTF_8 = "UTF-8";
+    // Lowercase hexadecimal digits, used to encode the nonce and the signature.
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    // Size of the random nonce, in bytes.
+    private static final int NONCE_SIZE = 16;
 
     // A cryptographically secure random number generator.
     private static final SecureRandom secureRandom = new SecureRandom();
 
-    // Private constructor.
-    private HmacRequestSigner() {
-        /*
-         * This is a utility class that should only be accessed through its
-         * static methods.
-         */
-    }
+    // Mac instances are not thread safe, so each thread keeps its own and re-initializes it for every step.
+    private static final ThreadLocal<Mac> threadMac = ThreadLocal.withInitial(() -> {
+        try {
+            return Mac.getInstance(HMAC_SHA_256);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(HMAC_SHA_256 + " is not available", e);
+        }
+    });
 
+    private final String apiId;
+    private final SecretKeySpec apiKeySpec;
+
+    /**
+     * Creates a signer bound to a single set of credentials, the API key is only decoded once.
+     *
+     * @param apiCredentials The credentials used to sign every request
+     * @throws IllegalArgumentException if the API key is not a hexadecimal string
+     */
+    public HmacRequestSigner(final ApiCredentials apiCredentials) {
+        this.apiId = apiCredentials.getApiId();
+        this.apiKeySpec = new SecretKeySpec(parseHex(apiCredentials.getApiKey()), HMAC_SHA_256);
+    }
 
     /**
-     * Entry point for HmacRequestSigner. Returns the value for the
-     * Authorization header for use with Veracode APIs when provided an API id,
-     * secret key, and target URL.
+     * Returns the value for the Authorization header for use with Veracode APIs when provided with
+     * an API id, secret key, and target URL.
+     * Kept for existing callers, the signer bound to the credentials is reused.
      *
      * @param url The URL of the called API, including query parameters
      * @return The value to be put in the Authorization header
-     * @throws UnsupportedEncodingException
-     * @throws IllegalStateException
-     * @throws NoSuchAlgorithmException
      * @throws InvalidKeyException
+     * @throws NoSuchAlgorithmException
      */
     public static String getVeracodeAuthorizationHeader(final ApiCredentials apiCredentials,
                                                          final URL url, final String httpMethod)
-            throws InvalidKeyException, NoSuchAlgorithmException, IllegalStateException, UnsupportedEncodingException {
-        final String urlPath = (url.getQuery() == null)
-                ? url.getPath()
-                : url.getPath().concat("?").concat(url.getQuery());
-        final String data = String.format(DATA_FORMAT, apiCredentials.getApiId(), url.getHost(), urlPath, httpMethod);
-        final String timestamp = String.valueOf(System.currentTimeMillis());
-        final String nonce = DatatypeConverter.printHexBinary(generateRandomBytes(16)).toLowerCase(Locale.US);
-        final String signature = getSignature(apiCredentials.getApiKey(), data, timestamp, nonce);
-        return String.format(HEADER_FORMAT, VERACODE_HMAC_SHA_256, apiCredentials.getApiId(), timestamp, nonce, signature);
+            throws InvalidKeyException, NoSuchAlgorithmException {
+        return apiCredentials.getRequestSigner().getAuthorizationHeader(url, httpMethod);
+    }
+
+    /**
+     * Returns the value for the Authorization header of a request to the given URL.
+     * Safe to call from several threads at once.
+     *
+     * @param url The URL of the called API, including query parameters
+     * @param httpMethod The HTTP method of the request
+     * @return The value to be put in the Authorization header
+     * @throws InvalidKeyException
+     */
+    public String getAuthorizationHeader(final URL url, final String httpMethod) throws InvalidKeyException {
+        return getAuthorizationHeader(url, httpMethod, String.valueOf(System.currentTimeMillis()),
+                generateRandomBytes(NONCE_SIZE));
+    }
+
+    /*
+     * Same header with a given timestamp and nonce, so the output can be compared to known answers.
+     */
+    String getAuthorizationHeader(final URL url, final String httpMethod, final String timestamp, final byte[] nonce)
+            throws InvalidKeyException {
+        final String data = getSignedData(url, httpMethod);
+        return new StringBuilder(VERACODE_HMAC_SHA_256.length() + apiId.length() + 160)
+                .append(VERACODE_HMAC_SHA_256)
+                .append(" id=").append(apiId)
+                .append(",ts=").append(timestamp)
+                .append(",nonce=").append(toHex(nonce))
+                .append(",sig=").append(toHex(getSignature(data, timestamp, nonce)))
+                .toString();
+    }
+
+    /*
+     * The unencrypted data string: id=<id>&host=<host>&url=<path and query>&method=<method>
+     */
+    String getSignedData(final URL url, final String httpMethod) {
+        StringBuilder data = new StringBuilder(128)
+                .append("id=").append(apiId)
+                .append("&host=").append(url.getHost())
+                .append("&url=").append(url.getPath());
+        if (url.getQuery() != null) {
+            data.append('?').append(url.getQuery());
+        }
+        return data.append("&method=").append(httpMethod).toString();
     }
 
     /*
      * Generate the signature expected by the Veracode platform by chaining
      * encryption routines in the correct order.
      */
-    private static String getSignature(final String key, final String data, final String timestamp, final String nonce)
-            throws InvalidKeyException, NoSuchAlgorithmException, IllegalStateException, UnsupportedEncodingException {
-        final byte[] keyBytes = DatatypeConverter.parseHexBinary(key);
-        final byte[] nonceBytes = DatatypeConverter.parseHexBinary(nonce);
-        final byte[] encryptedNonce = hmacSha256(nonceBytes, keyBytes);
-        final byte[] encryptedTimestamp = hmacSha256(timestamp, encryptedNonce);
-        final byte[] signingKey = hmacSha256(VERACODE_REQUEST_VERSION_STRING, encryptedTimestamp);
-        final byte[] signature = hmacSha256(data, signingKey);
-        return DatatypeConverter.printHexBinary(signature).toLowerCase(Locale.US);
+    byte[] getSignature(final String data, final String timestamp, final byte[] nonce) throws InvalidKeyException {
+        final Mac mac = threadMac.get();
+        mac.init(apiKeySpec);
+        final byte[] encryptedNonce = mac.doFinal(nonce);
+        mac.init(new SecretKeySpec(encryptedNonce, HMAC_SHA_256));
+        final byte[] encryptedTimestamp = mac.doFinal(timestamp.getBytes(StandardCharsets.UTF_8));
+        mac.init(new SecretKeySpec(encryptedTimestamp, HMAC_SHA_256));
+        final byte[] signingKey = mac.doFinal(VERACODE_REQUEST_VERSION_BYTES);
+        mac.init(new SecretKeySpec(signingKey, HMAC_SHA_256));
+        return mac.doFinal(data.getBytes(StandardCharsets.UTF_8));
     }
 
-    // Encrypt a string using the provided key.
-    private static byte[] hmacSha256(final String data, final byte[] key)
-            throws NoSuchAlgorithmException, InvalidKeyException, IllegalStateException, UnsupportedEncodingException {
-        final Mac mac = Mac.getInstance(HMAC_SHA_256);
-        mac.init(new SecretKeySpec(key, HMAC_SHA_256));
-        return mac.doFinal(data.getBytes(UTF_8));
+    // Encode a byte array as lowercase hexadecimal, without intermediate strings.
+    static char[] toHex(final byte[] bytes) {
+        final char[] hex = new char[bytes.length * 2];
+        for (int index = 0; index < bytes.length; index++) {
+            hex[index * 2] = HEX_DIGITS[(bytes[index] >> 4) & 0xF];
+            hex[index * 2 + 1] = HEX_DIGITS[bytes[index] & 0xF];
+        }
+        return hex;
     }
 
-    // Encrypt a byte array using the provided key.
-    private static byte[] hmacSha256(final byte[] data, final byte[] key)
-            throws NoSuchAlgorithmException, InvalidKeyException {
-        final Mac mac = Mac.getInstance(HMAC_SHA_256);
-        mac.init(new SecretKeySpec(key, HMAC_SHA_256));
-        return mac.doFinal(data);
+    // Decode a hexadecimal string, either case.
+    private static byte[] parseHex(final String hex) {
+        if (hex.length() % 2 != 0) {
+            throw new IllegalArgumentException("Veracode Key argument must be a hexadecimal string");
+        }
+        final byte[] bytes = new byte[hex.length() / 2];
+        for (int index = 0; index < bytes.length; index++) {
+            final int high = Character.digit(hex.charAt(index * 2), 16);
+            final int low = Character.digit(hex.charAt(index * 2 + 1), 16);
+            if (high < 0 || low < 0) {
+                throw new IllegalArgumentException("Veracode Key argument must be a hexadecimal string");
+            }
+            bytes[index] = (byte) ((high << 4) | low);
+        }
+        return bytes;
     }
 
     // Generate a random byte array for cryptographic use.
@@ -103,4 +159,4 @@ public final class HmacRequestSigner {
         secureRandom.nextBytes(key);
         return key;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,149 @@
+package util;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/*
+ * Workspace and project inventory of a previous run, stored in a compact binary file together with
+ * the validators (ETag/Last-Modified) each workspace's project list was served with.
+ */
+public final class InventorySnapshot {
+    private static final int SNAPSHOT_MAGIC = 0x5343414E;
+    private static final int SNAPSHOT_VERSION = 1;
+
+    private final Map<String, Entry> entriesByWorkspaceGuid = new LinkedHashMap<>();
+
+    public static final class Entry {
+        private final Workspace workspace;
+        private final String entityTag;
+        private final String lastModified;
+
+        private Entry(Workspace workspace, String entityTag, String lastModified) {
+            this.workspace = workspace;
+            this.entityTag = entityTag;
+            this.lastModified = lastModified;
+        }
+
+        public Workspace getWorkspace() {
+            return workspace;
+        }
+
+        public String getEntityTag() {
+            return entityTag;
+        }
+
+        public String getLastModified() {
+            return lastModified;
+        }
+
+        /*
+         * Copies the stored projects, bound to the workspace instance of the current run.
+         */
+        public List<Project> getProjectsFor(Workspace currentWorkspace) {
+            List<Project> projects = new ArrayList<>(workspace.getProjects().size());
+            workspace.getProjects().forEach(project -> projects.add(new Project(project.getGuid(),
+                    project.getSiteId(), project.getName(), project.getLanguages(), currentWorkspace)));
+            return projects;
+        }
+    }
+
+    public void record(Workspace workspace, String entityTag, String lastModified) {
+        entriesByWorkspaceGuid.put(workspace.getGuid(), new Entry(workspace, entityTag, lastModified));
+    }
+
+    public Optional<Entry> getEntry(Workspace workspace) {
+        return Optional.ofNullable(entriesByWorkspaceGuid.get(workspace.getGuid()));
+    }
+
+    public int size() {
+        return entriesByWorkspaceGuid.size();
+    }
+
+    /*
+     * Returns an empty result when there is no snapshot yet or when it cannot be read,
+     * in which case the full inventory is simply fetched again.
+     */
+    public static Optional<InventorySnapshot> load(Path snapshotPath) {
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(Files.newInputStream(snapshotPath)))) {
+            if (input.readInt() != SNAPSHOT_MAGIC || input.readInt() != SNAPSHOT_VERSION) {
+                Logger.log("Ignoring inventory snapshot with an unknown format: " + snapshotPath);
+                return Optional.empty();
+            }
+            InventorySnapshot inventorySnapshot = new InventorySnapshot();
+            int workspaceCount = input.readInt();
+            for (int currentWorkspace = 0; currentWorkspace < workspaceCount; currentWorkspace++) {
+                Workspace workspace = new Workspace(input.readUTF(), input.readUTF(), input.readUTF(), new ArrayList<>());
+                String entityTag = readOptionalString(input);
+                String lastModified = readOptionalString(input);
+                int projectCount = input.readInt();
+                for (int currentProject = 0; currentProject < projectCount; currentProject++) {
+                    workspace.getProjects().add(new Project(input.readUTF(), input.readUTF(), input.readUTF(),
+                            input.readUTF(), workspace));
+                }
+                inventorySnapshot.record(workspace, entityTag, lastModified);
+            }
+            return Optional.of(inventorySnapshot);
+        } catch (NoSuchFileException e) {
+            return Optional.empty();
+        } catch (IOException e) {
+            Logger.log("Unable to read inventory snapshot: " + snapshotPath);
+            Logger.debug(e::printStackTrace);
+            return Optional.empty();
+        }
+    }
+
+    /*
+     * Written to a temporary file first, so an interrupted run never leaves a truncated snapshot behind.
+     */
+    public void save(Path snapshotPath) {
+        Path temporaryPath = snapshotPath.resolveSibling(snapshotPath.getFileName() + ".tmp");
+        try {
+            try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporaryPath)))) {
+                output.writeInt(SNAPSHOT_MAGIC);
+                output.writeInt(SNAPSHOT_VERSION);
+                output.writeInt(entriesByWorkspaceGuid.size());
+                for (Entry entry : entriesByWorkspaceGuid.values()) {
+                    output.writeUTF(entry.workspace.getGuid());
+                    output.writeUTF(entry.workspace.getSiteId());
+                    output.writeUTF(entry.workspace.getName());
+                    writeOptionalString(output, entry.entityTag);
+                    writeOptionalString(output, entry.lastModified);
+                    output.writeInt(entry.workspace.getProjects().size());
+                    for (Project project : entry.workspace.getProjects()) {
+                        output.writeUTF(project.getGuid());
+                        output.writeUTF(project.getSiteId());
+                        output.writeUTF(project.getName());
+                        output.writeUTF(project.getLanguages());
+                    }
+                }
+            }
+            Files.move(temporaryPath, snapshotPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            Logger.log("Unable to save inventory snapshot: " + snapshotPath);
+            Logger.debug(e::printStackTrace);
+        }
+    }
+
+    private static String readOptionalString(DataInputStream input) throws IOException {
+        return input.readBoolean() ? input.readUTF() : null;
+    }
+
+    private static void writeOptionalString(DataOutputStream output, String value) throws IOException {
+        output.writeBoolean(value != null);
+        if (value != null) {
+            output.writeUTF(value);
+        }
+    }
+}
@@ -1,30 +1,65 @@
 package util;
 
-import java.util.Arrays;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
+/*
+ * Messages are queued and written to the console by a single writer thread, so callers never wait on console I/O
+ * unless the queue is full. Indentation and context belong to the calling thread, which lets every browser worker
+ * keep its own nesting.
+ */
 public final class Logger {
+    private static final int QUEUE_CAPACITY = 8192;
+    private static final int MAXIMUM_BATCH_SIZE = 256;
+    private static final long FLUSH_TIMEOUT_SECONDS = 5;
+
     public static boolean isDebug = false;
-    public static int currentLevel = 0;
     public static boolean isDebugSelenium = false;
 
-    private Logger() {
+    private static final ThreadLocal<Integer> currentLevel = ThreadLocal.withInitial(() -> 0);
+    private static final ThreadLocal<String> currentContext = new ThreadLocal<>();
+    private static final BlockingQueue<LogEntry> pendingEntries = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
 
+    static {
+        Thread writerThread = new Thread(Logger::writeEntries, "logger");
+        writerThread.setDaemon(true);
+        writerThread.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> flush(FLUSH_TIMEOUT_SECONDS), "logger-flush"));
     }
 
-    public static void log(String aMessage) {
-        Arrays.stream(aMessage.split("\n"))
-                        .forEach(Logger::logInternal);
-    }
+    private static final class LogEntry {
+        private final String message;
+        private final int level;
+        private final String context;
+        private final CountDownLatch flushLatch;
 
-    private static void logInternal(Object aMessage) {
-        for (int level = 0; level < currentLevel; level++) {
-            System.out.print("  ");
+        private LogEntry(String message, int level, String context, CountDownLatch flushLatch) {
+            this.message = message;
+            this.level = level;
+            this.context = context;
+            this.flushLatch = flushLatch;
         }
-        System.out.println(aMessage);
     }
 
+    private Logger() {
+
+    }
+
+    public static void log(String aMessage) {
+        enqueue(new LogEntry(String.valueOf(aMessage), currentLevel.get(), currentContext.get(), null));
+    }
+
+    /*
+     * Stack traces and other output written straight to the console are printed after every message queued before them.
+     */
     public static void debug(Runnable runnable) {
         if (isDebug) {
+            flush(FLUSH_TIMEOUT_SECONDS);
             runnable.run();
         }
     }
@@ -35,7 +70,116 @@ public final class Logger {
         }
     }
 
+    /*
+     * The message is only formatted when debug is enabled.
+     */
+    public static void debug(String messageFormat, Object... messageArguments) {
+        if (isDebug) {
+            log(String.format(messageFormat, messageArguments));
+        }
+    }
+
     public static void printLine() {
-        log("_".repeat(Math.max(0, 60 - currentLevel * 2)));
+        log("_".repeat(Math.max(0, 60 - currentLevel.get() * 2)));
+    }
+
+    public static void increaseIndentation() {
+        currentLevel.set(currentLevel.get() + 1);
+    }
+
+    public static void decreaseIndentation() {
+        currentLevel.set(Math.max(0, currentLevel.get() - 1));
+    }
+
+    /*
+     * Prefix added to every line logged by the current thread, null removes it.
+     */
+    public static void setContext(String context) {
+        if (context == null) {
+            currentContext.remove();
+        } else {
+            currentContext.set(context);
+        }
+    }
+
+    /*
+     * Waits until every message queued so far has been written.
+     */
+    public static void flush() {
+        flush(Long.MAX_VALUE);
+    }
+
+    private static void flush(long timeoutSeconds) {
+        CountDownLatch flushLatch = new CountDownLatch(1);
+        enqueue(new LogEntry(null, 0, null, flushLatch));
+        try {
+            flushLatch.await(timeoutSeconds, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void enqueue(LogEntry logEntry) {
+        try {
+            pendingEntries.put(logEntry);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void writeEntries() {
+        List<LogEntry> batch = new ArrayList<>(MAXIMUM_BATCH_SIZE);
+        StringBuilder output = new StringBuilder();
+        while (true) {
+            try {
+                batch.add(pendingEntries.take());
+            } catch (InterruptedException e) {
+                return;
+            }
+            pendingEntries.drainTo(batch, MAXIMUM_BATCH_SIZE - 1);
+            for (LogEntry logEntry : batch) {
+                if (logEntry.flushLatch == null) {
+                    appendEntry(output, logEntry);
+                    continue;
+                }
+                writeOutput(output);
+                logEntry.flushLatch.countDown();
+            }
+            writeOutput(output);
+            batch.clear();
+        }
+    }
+
+    private static void appendEntry(StringBuilder output, LogEntry logEntry) {
+        String message = logEntry.message;
+        int messageEnd = message.length();
+        while (messageEnd > 0 && message.charAt(messageEnd - 1) == '\n') {
+            messageEnd--;
+        }
+        int lineStart = 0;
+        while (lineStart <= messageEnd) {
+            int lineEnd = message.indexOf('\n', lineStart);
+            if (lineEnd < 0 || lineEnd > messageEnd) {
+                lineEnd = messageEnd;
+            }
+            if (logEntry.context != null) {
+                output.append('[').append(logEntry.context).append("] ");
+            }
+            for (int level = 0; level < logEntry.level; level++) {
+                output.append("  ");
+            }
+            output.append(message, lineStart, lineEnd).append(System.lineSeparator());
+            lineStart = lineEnd + 1;
+        }
+    }
+
+    private static void writeOutput(StringBuilder output) {
+        if (output.length() == 0) {
+            return;
+        }
+        PrintStream console = System.out;
+        console.print(output);
+        console.flush();
+        output.setLength(0);
     }
 }
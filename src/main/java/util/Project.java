@@ -19,7 +19,11 @@ public final class Project {
     }
 
     public boolean isNotContainerScan() {
-        return !"OS".equals(languages);
+        return !isContainerScan(languages);
+    }
+
+    public static boolean isContainerScan(String languages) {
+        return "OS".equals(languages);
     }
 
     public String getFullName() {
@@ -38,6 +42,10 @@ public final class Project {
         return name;
     }
 
+    public String getLanguages() {
+        return languages;
+    }
+
     public Workspace getWorkspace() {
         return workspace;
     }
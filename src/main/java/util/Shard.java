@@ -0,0 +1,59 @@
+package util;
+
+import java.nio.charset.StandardCharsets;
+import java.util.zip.CRC32;
+
+/*
+ * One of several processes sharing the projects of a tenant without talking to each other.
+ * Projects are assigned by a hash of their guid, which is the same on every machine and every run.
+ */
+public final class Shard {
+    private final int index;
+    private final int count;
+
+    public Shard(int index, int count) {
+        if (count < 1 || index < 1 || index > count) {
+            throw new IllegalArgumentException("Shard must be written as index/count, with 1 <= index <= count");
+        }
+        this.index = index;
+        this.count = count;
+    }
+
+    /*
+     * Parses the index/count notation, for example 2/4 for the second of four shards.
+     */
+    public static Shard parse(String shard) {
+        String[] shardParts = shard.split("/");
+        if (shardParts.length != 2) {
+            throw new IllegalArgumentException("Shard must be written as index/count, for example 1/4");
+        }
+        try {
+            return new Shard(Integer.parseInt(shardParts[0].trim()), Integer.parseInt(shardParts[1].trim()));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Shard must be written as index/count, for example 1/4");
+        }
+    }
+
+    public boolean contains(Project project) {
+        return getShardIndex(project.getGuid(), count) == index;
+    }
+
+    public static int getShardIndex(String projectGuid, int shardCount) {
+        CRC32 checksum = new CRC32();
+        checksum.update(projectGuid.getBytes(StandardCharsets.UTF_8));
+        return (int) (checksum.getValue() % shardCount) + 1;
+    }
+
+    public int getIndex() {
+        return index;
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    @Override
+    public String toString() {
+        return index + "/" + count;
+    }
+}
@@ -0,0 +1,91 @@
+package util.apihandlers;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Token bucket shared by every API call, with a rate that follows the server: each successful response adds a
+ * little to it and each throttled response halves it (AIMD), so the tool settles at the highest rate accepted.
+ * A Retry-After from the server stops every caller, not only the one that was throttled.
+ * Permits are handed out as futures completing on the delayed executor, no thread sleeps while waiting.
+ */
+final class AdaptiveRateLimiter {
+    private static final double ADDITIVE_INCREASE = 0.5;
+    private static final double MULTIPLICATIVE_DECREASE = 0.5;
+    private static final long MINIMUM_NANOSECONDS_BETWEEN_DECREASES = TimeUnit.SECONDS.toNanos(1);
+    private static final double NANOSECONDS_PER_SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    private final double minimumRate;
+    private final double maximumRate;
+    private double permitsPerSecond;
+    private double availablePermits;
+    private long lastRefillTime;
+    private long pausedUntil;
+    private long lastDecreaseTime;
+
+    AdaptiveRateLimiter(double initialRate, double minimumRate, double maximumRate) {
+        this.minimumRate = minimumRate;
+        this.maximumRate = maximumRate;
+        this.permitsPerSecond = initialRate;
+        this.availablePermits = 1;
+        this.lastRefillTime = System.nanoTime();
+        this.pausedUntil = lastRefillTime;
+        this.lastDecreaseTime = lastRefillTime - MINIMUM_NANOSECONDS_BETWEEN_DECREASES;
+    }
+
+    /*
+     * Completes once the caller may send its request.
+     */
+    CompletableFuture<Void> acquire() {
+        long waitNanoseconds = reserve();
+        if (waitNanoseconds <= 0) {
+            return CompletableFuture.completedFuture(null);
+        }
+        return CompletableFuture.runAsync(() -> {
+        }, CompletableFuture.delayedExecutor(waitNanoseconds, TimeUnit.NANOSECONDS));
+    }
+
+    /*
+     * Takes a permit, letting the bucket go negative, and returns how long the caller has to wait for it.
+     */
+    private synchronized long reserve() {
+        long now = System.nanoTime();
+        refill(now);
+        availablePermits -= 1;
+        long waitForPermit = availablePermits >= 0
+                ? 0
+                : (long) (-availablePermits / permitsPerSecond * NANOSECONDS_PER_SECOND);
+        return Math.max(waitForPermit, pausedUntil - now);
+    }
+
+    private void refill(long now) {
+        double burstCapacity = Math.max(1, permitsPerSecond);
+        availablePermits = Math.min(burstCapacity,
+                availablePermits + (now - lastRefillTime) / NANOSECONDS_PER_SECOND * permitsPerSecond);
+        lastRefillTime = now;
+    }
+
+    synchronized void onSuccess() {
+        refill(System.nanoTime());
+        permitsPerSecond = Math.min(maximumRate, permitsPerSecond + ADDITIVE_INCREASE / permitsPerSecond);
+    }
+
+    /*
+     * Concurrent requests usually get throttled together, so the rate is only lowered once per second.
+     */
+    synchronized void onThrottled(Duration retryAfter) {
+        long now = System.nanoTime();
+        refill(now);
+        if (now - lastDecreaseTime >= MINIMUM_NANOSECONDS_BETWEEN_DECREASES) {
+            permitsPerSecond = Math.max(minimumRate, permitsPerSecond * MULTIPLICATIVE_DECREASE);
+            availablePermits = Math.min(availablePermits, 0);
+            lastDecreaseTime = now;
+        }
+        pausedUntil = Math.max(pausedUntil, now + retryAfter.toNanos());
+    }
+
+    synchronized double getPermitsPerSecond() {
+        return permitsPerSecond;
+    }
+}
@@ -0,0 +1,9 @@
+package util.apihandlers;
+
+public class ApiCallException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    public ApiCallException(String message) {
+        super(message);
+    }
+}
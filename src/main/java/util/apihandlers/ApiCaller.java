@@ -1,87 +1,416 @@
 package util.apihandlers;
 
-import org.apache.sling.commons.json.JSONException;
 import org.apache.sling.commons.json.JSONObject;
 import util.*;
+import util.metrics.Metrics;
 
-import javax.net.ssl.HttpsURLConnection;
-import java.io.ByteArrayOutputStream;
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.MalformedURLException;
+import java.net.URISyntaxException;
 import java.net.URL;
-import java.nio.charset.StandardCharsets;
+import java.net.http.HttpClient;
+import java.net.http.HttpConnectTimeoutException;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
 import java.security.InvalidKeyException;
-import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+import java.util.zip.GZIPInputStream;
 
 public class ApiCaller {
-    private static final String URL_BASE = "api.veracode.com/srcclr";
+    // Can be pointed at a local stub server through -Dveracode.api.base_url=http://localhost:port
+    private static final String URL_BASE = System.getProperty("veracode.api.base_url", "https://api.veracode.com/srcclr");
     private static final String WORKSPACE_LIST_API_URL = "/v3/workspaces";
     private static final String PROJECT_LIST_API_URL = "/projects";
+    private static final String DEFAULT_BRANCH_API_URL = "/default_branch";
     private static final String SIZE_FILTER = "?size=500";
     private static final String GET_REQUEST = "GET";
-    public static final int REQUEST_TIMEOUT = 0;
+    private static final String PUT_REQUEST = "PUT";
+    public static final int FAILED_REQUEST = -1;
+    private static final int HTTP_NOT_MODIFIED = 304;
+    private static final int HTTP_TOO_MANY_REQUESTS = 429;
+    private static final int HTTP_SERVICE_UNAVAILABLE = 503;
+    private static final int MAX_ATTEMPTS = 6;
+    private static final Duration INITIAL_BACKOFF = Duration.ofMillis(500);
+    private static final Duration MAX_RETRY_AFTER = Duration.ofMinutes(2);
+    private static final Duration CONNECT_TIMEOUT = Duration.ofSeconds(15);
+    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(60);
+    // Shared by every call so connections are pooled, kept alive and multiplexed over HTTP/2
+    private static final HttpClient HTTP_CLIENT = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_2)
+            .connectTimeout(CONNECT_TIMEOUT)
+            .followRedirects(HttpClient.Redirect.NORMAL)
+            .build();
+    private static final AdaptiveRateLimiter RATE_LIMITER = new AdaptiveRateLimiter(10, 0.5, 50);
+    // Reading a streamed page blocks while it downloads, so it is kept off the HTTP client and common pool threads
+    private static final ExecutorService PAGE_READERS = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "api-page-reader");
+        thread.setDaemon(true);
+        return thread;
+    });
 
     public static List<Workspace> getAllWorkspaces(ApiCredentials apiCredentials) {
-        return runApi(WORKSPACE_LIST_API_URL + SIZE_FILTER, GET_REQUEST, null, apiCredentials)
-                .flatMap(JsonHandler::getWorkspacesFromUrl)
-                .orElse(Collections.emptyList());
+        try (Stream<Workspace> workspaces = streamWorkspaces(apiCredentials)) {
+            return workspaces.collect(Collectors.toList());
+        } catch (ApiCallException e) {
+            Logger.log(e.getMessage());
+            return Collections.emptyList();
+        }
+    }
+
+    /*
+     * Every project of a workspace, with the first page requested with If-None-Match/If-Modified-Since so an
+     * unchanged workspace costs a single empty response. Either validator can be null.
+     * No thread is held while waiting for the first page. The pages are then parsed as they are downloaded, on a
+     * page reader thread, with the next page requested ahead like streamWorkspaces does.
+     * Completes exceptionally with an ApiCallException if one of the pages cannot be read.
+     */
+    public static CompletableFuture<ConditionalResult<List<Project>>> getAllProjectsIfModifiedAsync(
+            ApiCredentials apiCredentials, Workspace workspace, String entityTag, String lastModified) {
+        List<String> conditionalHeaders = new ArrayList<>();
+        if (entityTag != null) {
+            conditionalHeaders.add("If-None-Match");
+            conditionalHeaders.add(entityTag);
+        }
+        if (lastModified != null) {
+            conditionalHeaders.add("If-Modified-Since");
+            conditionalHeaders.add(lastModified);
+        }
+        URL firstPageUrl = toUrl(getProjectListUrl(workspace));
+        StreamedPage.ItemReader<Project> projectReader = jsonParser -> JsonHandler.readProject(jsonParser, workspace);
+        return sendAsync(firstPageUrl, GET_REQUEST, null, apiCredentials, HttpResponse.BodyHandlers.ofInputStream(),
+                conditionalHeaders.toArray(new String[0]))
+                .thenApplyAsync(response -> {
+                    if (response.statusCode() == HTTP_NOT_MODIFIED) {
+                        closeQuietly(response.body());
+                        return ConditionalResult.<List<Project>>notModified(entityTag, lastModified);
+                    }
+                    if (!isSuccessful(response)) {
+                        closeQuietly(response.body());
+                        throw new ApiCallException("API call to " + firstPageUrl + " failed with HTTP " +
+                                response.statusCode());
+                    }
+                    StreamedPage<Project> firstPage = new StreamedPage<>(firstPageUrl,
+                            decodeBody(response, response.body()), "projects", projectReader);
+                    List<Project> projects = new ArrayList<>();
+                    try (PagedResultIterator<Project> pagedResultIterator = new PagedResultIterator<>(firstPageUrl,
+                            CompletableFuture.completedFuture(Optional.of(firstPage)),
+                            pageUrl -> openPageAsync(pageUrl, apiCredentials, "projects", projectReader))) {
+                        pagedResultIterator.forEachRemaining(projects::add);
+                    }
+                    if (firstPage.getNextPageUrl().isPresent()) {
+                        return ConditionalResult.modified(projects, null, null);
+                    }
+                    return ConditionalResult.modified(projects,
+                            response.headers().firstValue("ETag").orElse(null),
+                            response.headers().firstValue("Last-Modified").orElse(null));
+                }, PAGE_READERS);
+    }
+
+    /*
+     * Lazily follows every page of the workspace list.
+     * Throws an ApiCallException while being consumed if one of the pages cannot be read.
+     */
+    public static Stream<Workspace> streamWorkspaces(ApiCredentials apiCredentials) {
+        return streamPages(WORKSPACE_LIST_API_URL + SIZE_FILTER, apiCredentials,
+                "workspaces", JsonHandler::readWorkspace);
+    }
+
+    private static String getProjectListUrl(Workspace workspace) {
+        return WORKSPACE_LIST_API_URL + "/" + workspace.getGuid() + PROJECT_LIST_API_URL + SIZE_FILTER;
+    }
+
+    private static <T> Stream<T> streamPages(String apiUrl, ApiCredentials apiCredentials, String embeddedArrayName,
+                                             StreamedPage.ItemReader<T> itemReader) {
+        PagedResultIterator<T> pagedResultIterator = new PagedResultIterator<>(toUrl(apiUrl),
+                pageUrl -> openPageAsync(pageUrl, apiCredentials, embeddedArrayName, itemReader));
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(pagedResultIterator,
+                        Spliterator.ORDERED | Spliterator.NONNULL), false)
+                .onClose(pagedResultIterator::close);
+    }
+
+    /*
+     * The page body is only read while the returned page is being iterated.
+     */
+    private static <T> CompletableFuture<Optional<StreamedPage<T>>> openPageAsync(
+            URL pageUrl, ApiCredentials apiCredentials, String embeddedArrayName,
+            StreamedPage.ItemReader<T> itemReader) {
+        return sendAsync(pageUrl, GET_REQUEST, null, apiCredentials, HttpResponse.BodyHandlers.ofInputStream())
+                .thenApply(response -> {
+                    if (!isSuccessful(response)) {
+                        closeQuietly(response.body());
+                        throw new ApiCallException("API call to " + pageUrl + " failed with HTTP " +
+                                response.statusCode());
+                    }
+                    return Optional.of(new StreamedPage<>(pageUrl, decodeBody(response, response.body()),
+                            embeddedArrayName, itemReader));
+                })
+                .exceptionally(failure -> {
+                    Logger.log("Unable to run API at: " + pageUrl);
+                    Logger.debug(failure::printStackTrace);
+                    return Optional.empty();
+                });
     }
 
-    public static List<Project> getAllProjects(ApiCredentials apiCredentials, Workspace workspace) {
-        return runApi(WORKSPACE_LIST_API_URL + "/" + workspace.getGuid() + PROJECT_LIST_API_URL + SIZE_FILTER,
-                GET_REQUEST, null, apiCredentials)
-                .flatMap(apiCallResult -> JsonHandler.getProjectsFromUrl(apiCallResult, workspace))
-                .orElse(Collections.emptyList());
+    /*
+     * Branches the platform knows for the project, empty when they cannot be read through the API,
+     * in which case the caller cannot tell whether a branch exists.
+     */
+    public static CompletableFuture<Optional<List<String>>> getProjectBranchesAsync(ApiCredentials apiCredentials,
+                                                                                  Project project) {
+        URL projectUrl = toUrl(WORKSPACE_LIST_API_URL + "/" + project.getWorkspace().getGuid() +
+                PROJECT_LIST_API_URL + "/" + project.getGuid());
+        return sendAsync(projectUrl, GET_REQUEST, null, apiCredentials, HttpResponse.BodyHandlers.ofByteArray())
+                .thenApply(response -> {
+                    if (!isSuccessful(response)) {
+                        Logger.debug("Unable to read the branches of %s, HTTP %d", project.getFullName(),
+                                response.statusCode());
+                        return Optional.<List<String>>empty();
+                    }
+                    try {
+                        return JsonHandler.readProjectBranches(
+                                decodeBody(response, new ByteArrayInputStream(response.body())));
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                })
+                .exceptionally(failure -> {
+                    Logger.debug("Unable to read the branches of %s: %s", project.getFullName(), failure.getMessage());
+                    return Optional.empty();
+                });
     }
 
-    private static Optional<JSONObject> runApi(String apiUrl, String requestType,
-                                               String jsonParameters, ApiCredentials apiCredentials) {
+    /*
+     * Default branch the platform reports for the project, empty when it cannot be read through the API.
+     */
+    public static Optional<String> getDefaultBranch(ApiCredentials apiCredentials, Project project) {
+        URL projectUrl = toUrl(WORKSPACE_LIST_API_URL + "/" + project.getWorkspace().getGuid() +
+                PROJECT_LIST_API_URL + "/" + project.getGuid());
         try {
-            final URL applicationsApiUrl = new URL("https://" + URL_BASE + apiUrl);
-            final String authorizationHeader =
-                    HmacRequestSigner.getVeracodeAuthorizationHeader(apiCredentials, applicationsApiUrl, requestType);
-
-            final HttpsURLConnection connection = (HttpsURLConnection) applicationsApiUrl.openConnection();
-            connection.setConnectTimeout(REQUEST_TIMEOUT);
-            connection.setReadTimeout(REQUEST_TIMEOUT);
-            connection.setRequestMethod(requestType);
-            connection.setRequestProperty("Authorization", authorizationHeader);
-
-            if (jsonParameters != null) {
-                connection.setRequestProperty("Content-Type", "application/json");
-                connection.setDoOutput(true);
-                try (OutputStream outputStream = connection.getOutputStream()) {
-                    byte[] input = jsonParameters.getBytes(StandardCharsets.UTF_8);
-                    outputStream.write(input, 0, input.length);
-                }
+            HttpResponse<byte[]> response = sendAsync(projectUrl, GET_REQUEST, null, apiCredentials,
+                    HttpResponse.BodyHandlers.ofByteArray())
+                    .join();
+            if (!isSuccessful(response)) {
+                Logger.debug("Unable to read the default branch of %s, HTTP %d", project.getFullName(),
+                        response.statusCode());
+                return Optional.empty();
             }
+            return JsonHandler.readProjectDefaultBranch(
+                    decodeBody(response, new ByteArrayInputStream(response.body())));
+        } catch (ApiCallException | CompletionException | IOException | UncheckedIOException e) {
+            Logger.debug("Unable to read the default branch of %s: %s", project.getFullName(), e.getMessage());
+            return Optional.empty();
+        }
+    }
 
-            try (InputStream responseInputStream = connection.getInputStream()) {
-                return Optional.of(readResponse(responseInputStream));
-            }
-        } catch (InvalidKeyException | NoSuchAlgorithmException | IllegalStateException
-                | IOException | JSONException e) {
+    /*
+     * Returns the HTTP response code of the call, or FAILED_REQUEST if no response was received.
+     */
+    public static int setDefaultBranch(ApiCredentials apiCredentials, Project project, String branchName) {
+        String apiUrl = WORKSPACE_LIST_API_URL + "/" + project.getWorkspace().getGuid() +
+                PROJECT_LIST_API_URL + "/" + project.getGuid() + DEFAULT_BRANCH_API_URL;
+        String jsonParameters = "{\"default_branch\":" + JSONObject.quote(branchName) + "}";
+        try {
+            return sendAsync(toUrl(apiUrl), PUT_REQUEST, jsonParameters, apiCredentials,
+                    HttpResponse.BodyHandlers.discarding())
+                    .join()
+                    .statusCode();
+        } catch (ApiCallException | CompletionException e) {
             Logger.log("Unable to run API at: " + apiUrl + "\nWith parameters: " + jsonParameters);
-            e.printStackTrace();
+            Logger.debug(e::printStackTrace);
+        }
+        return FAILED_REQUEST;
+    }
+
+    private static <T> CompletableFuture<HttpResponse<T>> sendAsync(URL apiUrl, String requestType,
+                                                                   String jsonParameters,
+                                                                   ApiCredentials apiCredentials,
+                                                                   HttpResponse.BodyHandler<T> bodyHandler,
+                                                                   String... headers) {
+        return sendAsync(apiUrl, requestType, jsonParameters, apiCredentials, bodyHandler, headers, 1);
+    }
+
+    /*
+     * Every attempt waits for the shared rate limiter and is signed again, as signatures are single use.
+     * Throttled responses (429, 503) and connection failures are retried after the Retry-After delay
+     * or an exponential backoff, the last attempt is returned as it is. A request that timed out once connected is
+     * not retried, every attempt could stall for the whole request timeout again.
+     */
+    private static <T> CompletableFuture<HttpResponse<T>> sendAsync(URL apiUrl, String requestType,
+                                                                   String jsonParameters,
+                                                                   ApiCredentials apiCredentials,
+                                                                   HttpResponse.BodyHandler<T> bodyHandler,
+                                                                   String[] headers, int attempt) {
+        final HttpRequest.Builder request;
+        try {
+            request = HttpRequest.newBuilder(apiUrl.toURI())
+                    .timeout(REQUEST_TIMEOUT)
+                    .header("Accept-Encoding", "gzip");
+            if (headers.length > 0) {
+                request.headers(headers);
+            }
+        } catch (URISyntaxException e) {
+            return CompletableFuture.failedFuture(new ApiCallException("Invalid API url: " + apiUrl));
+        }
+        if (jsonParameters != null) {
+            request.header("Content-Type", "application/json")
+                    .method(requestType, HttpRequest.BodyPublishers.ofString(jsonParameters));
+        } else {
+            request.method(requestType, HttpRequest.BodyPublishers.noBody());
+        }
+        return RATE_LIMITER.acquire()
+                .thenCompose(permit -> {
+                    try {
+                        request.setHeader("Authorization",
+                                apiCredentials.getRequestSigner().getAuthorizationHeader(apiUrl, requestType));
+                    } catch (InvalidKeyException e) {
+                        return CompletableFuture.failedFuture(
+                                new ApiCallException("Unable to sign request to: " + apiUrl));
+                    }
+                    long startTime = System.nanoTime();
+                    return HTTP_CLIENT.sendAsync(request.build(), bodyHandler)
+                            .whenComplete((response, failure) -> Metrics.recordSince(Metrics.API_REQUEST, startTime));
+                })
+                .handle((response, failure) -> {
+                    Optional<Duration> retryDelay = getRetryDelay(response, failure, attempt);
+                    if (retryDelay.isEmpty()) {
+                        if (response != null && !isThrottled(response)) {
+                            RATE_LIMITER.onSuccess();
+                        }
+                        return response != null
+                                ? CompletableFuture.completedFuture(response)
+                                : CompletableFuture.<HttpResponse<T>>failedFuture(failure);
+                    }
+                    if (response != null) {
+                        closeQuietly(response.body());
+                        RATE_LIMITER.onThrottled(retryDelay.get());
+                        Logger.log("API is throttling requests (HTTP " + response.statusCode() + "), retrying " +
+                                apiUrl.getPath() + " in " + retryDelay.get().toMillis() + "ms");
+                    } else {
+                        Logger.debug("Retrying %s in %dms after: %s", apiUrl.getPath(),
+                                retryDelay.get().toMillis(), failure.getMessage());
+                    }
+                    Executor delayedExecutor =
+                            CompletableFuture.delayedExecutor(retryDelay.get().toMillis(), TimeUnit.MILLISECONDS);
+                    return CompletableFuture.supplyAsync(() -> null, delayedExecutor)
+                            .thenCompose(ignored -> sendAsync(apiUrl, requestType, jsonParameters, apiCredentials,
+                                    bodyHandler, headers, attempt + 1));
+                })
+                .thenCompose(Function.identity());
+    }
+
+    /*
+     * Empty when the outcome of the attempt should be returned to the caller.
+     */
+    private static Optional<Duration> getRetryDelay(HttpResponse<?> response, Throwable failure, int attempt) {
+        if (attempt >= MAX_ATTEMPTS) {
+            return Optional.empty();
+        }
+        Duration backoff = INITIAL_BACKOFF.multipliedBy(1L << (attempt - 1));
+        if (response != null) {
+            if (!isThrottled(response)) {
+                return Optional.empty();
+            }
+            return Optional.of(response.headers().firstValue("Retry-After")
+                    .flatMap(ApiCaller::parseRetryAfter)
+                    .map(retryAfter -> retryAfter.compareTo(MAX_RETRY_AFTER) > 0 ? MAX_RETRY_AFTER : retryAfter)
+                    .orElse(backoff));
+        }
+        Throwable cause = failure instanceof CompletionException && failure.getCause() != null
+                ? failure.getCause()
+                : failure;
+        if (cause instanceof HttpTimeoutException && !(cause instanceof HttpConnectTimeoutException)) {
+            return Optional.empty();
         }
-        return Optional.empty();
+        return cause instanceof IOException ? Optional.of(backoff) : Optional.empty();
+    }
+
+    private static boolean isThrottled(HttpResponse<?> response) {
+        return response.statusCode() == HTTP_TOO_MANY_REQUESTS || response.statusCode() == HTTP_SERVICE_UNAVAILABLE;
     }
 
     /*
-     * A simple method to read an input stream (containing JSON) to System.out.
+     * Retry-After is either a number of seconds or an HTTP date.
      */
-    private static JSONObject readResponse(InputStream responseInputStream) throws IOException, JSONException {
-        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
-        byte[] responseBytes = new byte[16384];
-        int x;
-        while ((x = responseInputStream.read(responseBytes, 0, responseBytes.length)) != -1) {
-            outputStream.write(responseBytes, 0, x);
-        }
-        outputStream.flush();
-        return new JSONObject(outputStream.toString());
+    private static Optional<Duration> parseRetryAfter(String retryAfter) {
+        try {
+            return Optional.of(Duration.ofSeconds(Math.max(0, Long.parseLong(retryAfter.trim()))));
+        } catch (NumberFormatException e) {
+            //not a number of seconds
+        }
+        try {
+            Duration untilDate = Duration.between(Instant.now(),
+                    ZonedDateTime.parse(retryAfter.trim(), DateTimeFormatter.RFC_1123_DATE_TIME).toInstant());
+            return Optional.of(untilDate.isNegative() ? Duration.ZERO : untilDate);
+        } catch (DateTimeParseException e) {
+            return Optional.empty();
+        }
+    }
+
+    private static void closeQuietly(Object body) {
+        if (body instanceof InputStream) {
+            closeQuietly((InputStream) body);
+        }
+    }
+
+    private static boolean isSuccessful(HttpResponse<?> response) {
+        return response.statusCode() >= 200 && response.statusCode() < 300;
+    }
+
+    private static InputStream decodeBody(HttpResponse<?> response, InputStream body) {
+        boolean isGzipped = response.headers().firstValue("Content-Encoding")
+                .filter("gzip"::equalsIgnoreCase)
+                .isPresent();
+        if (!isGzipped) {
+            return body;
+        }
+        try {
+            return new GZIPInputStream(body);
+        } catch (IOException e) {
+            closeQuietly(body);
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static URL toUrl(String apiUrl) {
+        try {
+            return new URL(URL_BASE + apiUrl);
+        } catch (MalformedURLException e) {
+            throw new ApiCallException("Invalid API url: " + apiUrl);
+        }
+    }
+
+    private static void closeQuietly(InputStream inputStream) {
+        if (inputStream == null) {
+            return;
+        }
+        try {
+            inputStream.close();
+        } catch (IOException e) {
+            //nothing to do here
+        }
     }
 }
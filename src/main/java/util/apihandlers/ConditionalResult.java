@@ -0,0 +1,47 @@
+package util.apihandlers;
+
+import java.util.Optional;
+
+/*
+ * Result of a conditional API call, either the new content or a "not modified" marker,
+ * along with the validators to send on the next call.
+ */
+public final class ConditionalResult<T> {
+    private final T result;
+    private final String entityTag;
+    private final String lastModified;
+
+    private ConditionalResult(T result, String entityTag, String lastModified) {
+        this.result = result;
+        this.entityTag = entityTag;
+        this.lastModified = lastModified;
+    }
+
+    static <T> ConditionalResult<T> modified(T result, String entityTag, String lastModified) {
+        return new ConditionalResult<>(result, entityTag, lastModified);
+    }
+
+    static <T> ConditionalResult<T> notModified(String entityTag, String lastModified) {
+        return new ConditionalResult<>(null, entityTag, lastModified);
+    }
+
+    public boolean isModified() {
+        return result != null;
+    }
+
+    public Optional<T> getResult() {
+        return Optional.ofNullable(result);
+    }
+
+    /*
+     * Empty when the server did not send one, or when the content spans several pages and the
+     * validator of the first page does not cover the others.
+     */
+    public Optional<String> getEntityTag() {
+        return Optional.ofNullable(entityTag);
+    }
+
+    public Optional<String> getLastModified() {
+        return Optional.ofNullable(lastModified);
+    }
+}
@@ -1,16 +1,25 @@
 package util.apihandlers;
 
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 import org.apache.sling.commons.json.JSONArray;
 import org.apache.sling.commons.json.JSONException;
 import org.apache.sling.commons.json.JSONObject;
 import util.Project;
 import util.Workspace;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.MalformedURLException;
+import java.net.URL;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 
 public class JsonHandler {
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
     public static Optional<List<Workspace>> getWorkspacesFromUrl(JSONObject apiCallResult) {
         return Optional.of(apiCallResult)
                 .flatMap(JsonHandler::getEmbeddedNode)
@@ -25,6 +34,26 @@ public class JsonHandler {
                 .map(projectsNode -> getAllProjects(projectsNode, workspace));
     }
 
+    static Optional<URL> withPageNumber(URL url, int pageNumber) {
+        StringBuilder query = new StringBuilder("page=").append(pageNumber);
+        if (url.getQuery() != null) {
+            for (String queryParameter : url.getQuery().split("&")) {
+                if (!queryParameter.startsWith("page=")) {
+                    query.append('&').append(queryParameter);
+                }
+            }
+        }
+        return toUrl(url.getProtocol() + "://" + url.getAuthority() + url.getPath() + "?" + query);
+    }
+
+    static Optional<URL> toUrl(String url) {
+        try {
+            return Optional.of(new URL(url));
+        } catch (MalformedURLException e) {
+            return Optional.empty();
+        }
+    }
+
     private static Optional<JSONArray> getProjectsNode(JSONObject embeddedNode) {
         return tryGetElementFromJsonObject(embeddedNode, "projects")
                 .filter(result -> result instanceof JSONArray)
@@ -85,6 +114,124 @@ public class JsonHandler {
                 workspace);
     }
 
+    /*
+     * Streaming counterpart of getWorkspace, reads a single workspace object from the parser.
+     */
+    static Optional<Workspace> readWorkspace(JsonParser jsonParser) throws IOException {
+        String guid = "";
+        String siteId = "";
+        String name = "";
+        while (jsonParser.nextToken() == JsonToken.FIELD_NAME) {
+            String fieldName = jsonParser.getCurrentName();
+            JsonToken valueToken = jsonParser.nextToken();
+            if (valueToken != JsonToken.VALUE_STRING) {
+                jsonParser.skipChildren();
+            } else if ("id".equals(fieldName)) {
+                guid = jsonParser.getText();
+            } else if ("site_id".equals(fieldName)) {
+                siteId = jsonParser.getText();
+            } else if ("name".equals(fieldName)) {
+                name = jsonParser.getText();
+            }
+        }
+        return Optional.of(new Workspace(guid, siteId, name, new ArrayList<>()));
+    }
+
+    /*
+     * Streaming counterpart of getProject, reads a single project object from the parser.
+     * Container scans are skipped before a Project is created for them.
+     */
+    static Optional<Project> readProject(JsonParser jsonParser, Workspace workspace) throws IOException {
+        String guid = "";
+        String siteId = "";
+        String name = "";
+        String languages = "";
+        while (jsonParser.nextToken() == JsonToken.FIELD_NAME) {
+            String fieldName = jsonParser.getCurrentName();
+            JsonToken valueToken = jsonParser.nextToken();
+            if ("id".equals(fieldName) && valueToken == JsonToken.VALUE_STRING) {
+                guid = jsonParser.getText();
+            } else if ("site_id".equals(fieldName) && valueToken.isScalarValue()) {
+                siteId = jsonParser.getText();
+            } else if ("name".equals(fieldName) && valueToken == JsonToken.VALUE_STRING) {
+                name = jsonParser.getText();
+            } else if ("languages".equals(fieldName) && valueToken == JsonToken.START_ARRAY) {
+                languages = readCommaDelimitedArray(jsonParser);
+            } else {
+                jsonParser.skipChildren();
+            }
+        }
+        if (Project.isContainerScan(languages)) {
+            return Optional.empty();
+        }
+        return Optional.of(new Project(guid, siteId, name, languages, workspace));
+    }
+
+    /*
+     * Reads the "branches" array of a single project, empty when the response does not list the branches
+     * as plain names.
+     */
+    static Optional<List<String>> readProjectBranches(InputStream projectInputStream) throws IOException {
+        try (JsonParser jsonParser = JSON_FACTORY.createParser(projectInputStream)) {
+            if (jsonParser.nextToken() != JsonToken.START_OBJECT) {
+                return Optional.empty();
+            }
+            while (jsonParser.nextToken() == JsonToken.FIELD_NAME) {
+                String fieldName = jsonParser.getCurrentName();
+                JsonToken valueToken = jsonParser.nextToken();
+                if ("branches".equals(fieldName) && valueToken == JsonToken.START_ARRAY) {
+                    List<String> branches = new ArrayList<>();
+                    while ((valueToken = jsonParser.nextToken()) != JsonToken.END_ARRAY) {
+                        if (valueToken == JsonToken.VALUE_STRING) {
+                            branches.add(jsonParser.getText());
+                        } else {
+                            jsonParser.skipChildren();
+                        }
+                    }
+                    return branches.isEmpty() ? Optional.empty() : Optional.of(branches);
+                }
+                jsonParser.skipChildren();
+            }
+            return Optional.empty();
+        }
+    }
+
+    /*
+     * Reads the "default_branch" of a single project, empty when the response does not include it.
+     */
+    static Optional<String> readProjectDefaultBranch(InputStream projectInputStream) throws IOException {
+        try (JsonParser jsonParser = JSON_FACTORY.createParser(projectInputStream)) {
+            if (jsonParser.nextToken() != JsonToken.START_OBJECT) {
+                return Optional.empty();
+            }
+            while (jsonParser.nextToken() == JsonToken.FIELD_NAME) {
+                String fieldName = jsonParser.getCurrentName();
+                JsonToken valueToken = jsonParser.nextToken();
+                if ("default_branch".equals(fieldName) && valueToken == JsonToken.VALUE_STRING) {
+                    return Optional.of(jsonParser.getText());
+                }
+                jsonParser.skipChildren();
+            }
+            return Optional.empty();
+        }
+    }
+
+    private static String readCommaDelimitedArray(JsonParser jsonParser) throws IOException {
+        StringBuilder arrayAsString = new StringBuilder();
+        JsonToken currentToken;
+        while ((currentToken = jsonParser.nextToken()) != JsonToken.END_ARRAY) {
+            if (arrayAsString.length() > 0) {
+                arrayAsString.append(", ");
+            }
+            if (currentToken.isScalarValue()) {
+                arrayAsString.append(jsonParser.getText());
+            } else {
+                jsonParser.skipChildren();
+            }
+        }
+        return arrayAsString.toString();
+    }
+
     private static String commaDelimitArray(JSONArray jsonArray) {
         StringBuilder arrayAsString = new StringBuilder();
         for (int currentIndex = 0; currentIndex < jsonArray.length(); currentIndex++) {
@@ -0,0 +1,107 @@
+package util.apihandlers;
+
+import java.io.Closeable;
+import java.net.URL;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+
+/*
+ * Lazily walks a paginated HAL collection, one streamed page at a time.
+ * Pages are parsed while they are read, so the "next" link is only known at the end of a page.
+ * Once the page metadata has been seen, the request for the following page is sent as soon as
+ * the current one is opened, so its download overlaps with parsing the current page.
+ */
+final class PagedResultIterator<T> implements Iterator<T>, Closeable {
+    private final Function<URL, CompletableFuture<Optional<StreamedPage<T>>>> pageOpener;
+    private StreamedPage<T> currentPage;
+    private URL pendingPageUrl;
+    private CompletableFuture<Optional<StreamedPage<T>>> pendingPage;
+    private int lastPageNumber = -1;
+    private int lastTotalPages = -1;
+
+    PagedResultIterator(URL firstPageUrl, Function<URL, CompletableFuture<Optional<StreamedPage<T>>>> pageOpener) {
+        this(firstPageUrl, pageOpener.apply(firstPageUrl), pageOpener);
+    }
+
+    /*
+     * For a first page the caller already requested, e.g. with conditional headers.
+     */
+    PagedResultIterator(URL firstPageUrl, CompletableFuture<Optional<StreamedPage<T>>> firstPage,
+                        Function<URL, CompletableFuture<Optional<StreamedPage<T>>>> pageOpener) {
+        this.pageOpener = pageOpener;
+        pendingPageUrl = firstPageUrl;
+        pendingPage = firstPage;
+    }
+
+    @Override
+    public boolean hasNext() {
+        while (currentPage == null || !currentPage.hasNext()) {
+            if (currentPage != null) {
+                finishCurrentPage();
+            }
+            if (pendingPage == null) {
+                return false;
+            }
+            openPendingPage();
+        }
+        return true;
+    }
+
+    @Override
+    public T next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        return currentPage.next();
+    }
+
+    @Override
+    public void close() {
+        if (currentPage != null) {
+            currentPage.close();
+            currentPage = null;
+        }
+        discardPendingPage();
+    }
+
+    private void finishCurrentPage() {
+        Optional<URL> nextPageUrl = currentPage.getNextPageUrl();
+        lastPageNumber = currentPage.getPageNumber();
+        lastTotalPages = currentPage.getTotalPages();
+        currentPage.close();
+        currentPage = null;
+        if (nextPageUrl.isEmpty()) {
+            discardPendingPage();
+        } else if (pendingPage == null || !pendingPageUrl.toString().equals(nextPageUrl.get().toString())) {
+            discardPendingPage();
+            requestPage(nextPageUrl.get());
+        }
+    }
+
+    private void openPendingPage() {
+        URL pageUrl = pendingPageUrl;
+        currentPage = pendingPage.join()
+                .orElseThrow(() -> new ApiCallException("Unable to read page at: " + pageUrl));
+        pendingPage = null;
+        pendingPageUrl = null;
+        if (lastPageNumber >= 0 && lastPageNumber + 2 < lastTotalPages) {
+            JsonHandler.withPageNumber(pageUrl, lastPageNumber + 2).ifPresent(this::requestPage);
+        }
+    }
+
+    private void requestPage(URL pageUrl) {
+        pendingPageUrl = pageUrl;
+        pendingPage = pageOpener.apply(pageUrl);
+    }
+
+    private void discardPendingPage() {
+        if (pendingPage != null) {
+            pendingPage.thenAccept(page -> page.ifPresent(StreamedPage::close));
+            pendingPage = null;
+            pendingPageUrl = null;
+        }
+    }
+}
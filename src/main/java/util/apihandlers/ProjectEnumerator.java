@@ -0,0 +1,110 @@
+package util.apihandlers;
+
+import util.ApiCredentials;
+import util.InventorySnapshot;
+import util.Logger;
+import util.Project;
+import util.Workspace;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Semaphore;
+import java.util.function.Consumer;
+
+/*
+ * Fetches the project lists of several workspaces at once through the non-blocking API calls,
+ * with at most "parallelism" workspaces being fetched at any time.
+ * Results are consumed in the same order as the workspace list, so the output does not depend on
+ * which API call finishes first.
+ * Workspaces found in the previous snapshot are revalidated and only downloaded again when they changed.
+ */
+public final class ProjectEnumerator {
+    private final ApiCredentials apiCredentials;
+    private final int parallelism;
+    private final InventorySnapshot previousSnapshot;
+    private final InventorySnapshot currentSnapshot = new InventorySnapshot();
+    private final List<Workspace> failedWorkspaces = new ArrayList<>();
+
+    public ProjectEnumerator(ApiCredentials apiCredentials, int parallelism) {
+        this(apiCredentials, parallelism, new InventorySnapshot());
+    }
+
+    public ProjectEnumerator(ApiCredentials apiCredentials, int parallelism, InventorySnapshot previousSnapshot) {
+        this.apiCredentials = apiCredentials;
+        this.parallelism = parallelism;
+        this.previousSnapshot = previousSnapshot;
+    }
+
+    public void enumerateProjects(List<Workspace> workspaceList) {
+        enumerateProjects(workspaceList, workspace -> {
+        });
+    }
+
+    /*
+     * Hands every successfully enumerated workspace to onWorkspaceReady as soon as its project list is complete,
+     * so the caller can start working on it while the next ones are still being fetched.
+     */
+    public void enumerateProjects(List<Workspace> workspaceList, Consumer<Workspace> onWorkspaceReady) {
+        Semaphore inFlightWorkspaces = new Semaphore(parallelism);
+        List<CompletableFuture<ConditionalResult<List<Project>>>> pendingProjectLists = new ArrayList<>();
+        int collectedWorkspaces = 0;
+        for (Workspace workspace : workspaceList) {
+            //while every slot is taken, the oldest workspace is collected instead of waiting idle
+            while (!inFlightWorkspaces.tryAcquire()) {
+                collectProjects(workspaceList.get(collectedWorkspaces),
+                        pendingProjectLists.get(collectedWorkspaces), onWorkspaceReady);
+                collectedWorkspaces++;
+            }
+            Optional<InventorySnapshot.Entry> snapshotEntry = previousSnapshot.getEntry(workspace);
+            pendingProjectLists.add(ApiCaller.getAllProjectsIfModifiedAsync(apiCredentials, workspace,
+                            snapshotEntry.map(InventorySnapshot.Entry::getEntityTag).orElse(null),
+                            snapshotEntry.map(InventorySnapshot.Entry::getLastModified).orElse(null))
+                    .whenComplete((projectList, failure) -> inFlightWorkspaces.release()));
+        }
+        for (; collectedWorkspaces < workspaceList.size(); collectedWorkspaces++) {
+            collectProjects(workspaceList.get(collectedWorkspaces),
+                    pendingProjectLists.get(collectedWorkspaces), onWorkspaceReady);
+        }
+    }
+
+    private void collectProjects(Workspace workspace,
+                                 CompletableFuture<ConditionalResult<List<Project>>> pendingProjectList,
+                                 Consumer<Workspace> onWorkspaceReady) {
+        Logger.log("Gathering project list for workspace: " + workspace.getName());
+        try {
+            ConditionalResult<List<Project>> projectList = pendingProjectList.join();
+            if (projectList.isModified()) {
+                workspace.getProjects().addAll(projectList.getResult().orElse(Collections.emptyList()));
+                Logger.log("Found " + workspace.getProjects().size() + " Projects");
+            } else {
+                previousSnapshot.getEntry(workspace)
+                        .ifPresent(snapshotEntry -> workspace.getProjects().addAll(snapshotEntry.getProjectsFor(workspace)));
+                Logger.log("Found " + workspace.getProjects().size() + " Projects (unchanged since the last run)");
+            }
+            currentSnapshot.record(workspace, projectList.getEntityTag().orElse(null),
+                    projectList.getLastModified().orElse(null));
+            Logger.printLine();
+            onWorkspaceReady.accept(workspace);
+        } catch (CompletionException e) {
+            failedWorkspaces.add(workspace);
+            Logger.log("Unable to gather project list for workspace: " + workspace.getName());
+            Logger.debug(e::printStackTrace);
+            Logger.printLine();
+        }
+    }
+
+    public List<Workspace> getFailedWorkspaces() {
+        return failedWorkspaces;
+    }
+
+    /*
+     * Every workspace that was enumerated successfully, failed workspaces are left out.
+     */
+    public InventorySnapshot getCurrentSnapshot() {
+        return currentSnapshot;
+    }
+}
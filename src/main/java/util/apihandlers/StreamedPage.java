@@ -0,0 +1,208 @@
+package util.apihandlers;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+
+/*
+ * Pull-parses a single HAL page straight from the response stream.
+ * Only the item currently being read is kept in memory, the "_links" and "page" metadata
+ * are only known once every item before them has been consumed.
+ */
+final class StreamedPage<T> implements Iterator<T>, Closeable {
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    private enum ParsingState { NOT_STARTED, TOP_LEVEL, EMBEDDED, ITEMS, FINISHED }
+
+    private final URL pageUrl;
+    private final JsonParser jsonParser;
+    private final String embeddedArrayName;
+    private final ItemReader<T> itemReader;
+    private ParsingState parsingState = ParsingState.NOT_STARTED;
+    private T nextItem;
+    private URL nextPageUrl;
+    private int pageNumber = -1;
+    private int totalPages = -1;
+
+    interface ItemReader<T> {
+        /*
+         * Called with the parser positioned on the START_OBJECT of an item, must consume the whole object.
+         * Returns an empty result for items that should be skipped.
+         */
+        Optional<T> readItem(JsonParser jsonParser) throws IOException;
+    }
+
+    /*
+     * Nothing is read from the stream until the first call to hasNext.
+     */
+    StreamedPage(URL pageUrl, InputStream responseInputStream, String embeddedArrayName,
+                 ItemReader<T> itemReader) {
+        this.pageUrl = pageUrl;
+        this.embeddedArrayName = embeddedArrayName;
+        this.itemReader = itemReader;
+        try {
+            this.jsonParser = JSON_FACTORY.createParser(responseInputStream);
+        } catch (IOException e) {
+            throw new ApiCallException("Unable to read page at: " + pageUrl);
+        }
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (nextItem == null && parsingState != ParsingState.FINISHED) {
+            try {
+                nextItem = readNextItem();
+            } catch (IOException e) {
+                close();
+                throw new ApiCallException("Unable to read page at: " + pageUrl);
+            }
+        }
+        return nextItem != null;
+    }
+
+    @Override
+    public T next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        T currentItem = nextItem;
+        nextItem = null;
+        return currentItem;
+    }
+
+    /*
+     * Only meaningful once every item has been consumed.
+     */
+    Optional<URL> getNextPageUrl() {
+        if (nextPageUrl != null) {
+            return Optional.of(nextPageUrl).filter(url -> !url.toString().equals(pageUrl.toString()));
+        }
+        if (pageNumber >= 0 && pageNumber + 1 < totalPages) {
+            return JsonHandler.withPageNumber(pageUrl, pageNumber + 1);
+        }
+        return Optional.empty();
+    }
+
+    int getPageNumber() {
+        return pageNumber;
+    }
+
+    int getTotalPages() {
+        return totalPages;
+    }
+
+    @Override
+    public void close() {
+        parsingState = ParsingState.FINISHED;
+        try {
+            jsonParser.close();
+        } catch (IOException e) {
+            //nothing to do here
+        }
+    }
+
+    private T readNextItem() throws IOException {
+        while (parsingState != ParsingState.FINISHED) {
+            JsonToken currentToken = jsonParser.nextToken();
+            if (currentToken == null) {
+                close();
+                return null;
+            }
+            switch (parsingState) {
+                case NOT_STARTED:
+                    if (currentToken != JsonToken.START_OBJECT) {
+                        throw new IOException("Expected a JSON object at: " + pageUrl);
+                    }
+                    parsingState = ParsingState.TOP_LEVEL;
+                    break;
+                case ITEMS:
+                    if (currentToken == JsonToken.END_ARRAY) {
+                        parsingState = ParsingState.EMBEDDED;
+                    } else if (currentToken == JsonToken.START_OBJECT) {
+                        Optional<T> item = itemReader.readItem(jsonParser);
+                        if (item.isPresent()) {
+                            return item.get();
+                        }
+                    } else {
+                        jsonParser.skipChildren();
+                    }
+                    break;
+                case EMBEDDED:
+                    if (currentToken == JsonToken.END_OBJECT) {
+                        parsingState = ParsingState.TOP_LEVEL;
+                        break;
+                    }
+                    String fieldName = jsonParser.getCurrentName();
+                    if (jsonParser.nextToken() == JsonToken.START_ARRAY && embeddedArrayName.equals(fieldName)) {
+                        parsingState = ParsingState.ITEMS;
+                    } else {
+                        jsonParser.skipChildren();
+                    }
+                    break;
+                default:
+                    readTopLevelToken(currentToken);
+            }
+        }
+        return null;
+    }
+
+    private void readTopLevelToken(JsonToken currentToken) throws IOException {
+        if (currentToken == JsonToken.END_OBJECT) {
+            close();
+            return;
+        }
+        String fieldName = jsonParser.getCurrentName();
+        JsonToken valueToken = jsonParser.nextToken();
+        if (valueToken != JsonToken.START_OBJECT) {
+            jsonParser.skipChildren();
+        } else if ("_embedded".equals(fieldName)) {
+            parsingState = ParsingState.EMBEDDED;
+        } else if ("_links".equals(fieldName)) {
+            readLinks();
+        } else if ("page".equals(fieldName)) {
+            readPageMetadata();
+        } else {
+            jsonParser.skipChildren();
+        }
+    }
+
+    private void readLinks() throws IOException {
+        while (jsonParser.nextToken() == JsonToken.FIELD_NAME) {
+            String linkName = jsonParser.getCurrentName();
+            if (jsonParser.nextToken() == JsonToken.START_OBJECT && "next".equals(linkName)) {
+                while (jsonParser.nextToken() == JsonToken.FIELD_NAME) {
+                    String linkFieldName = jsonParser.getCurrentName();
+                    if (jsonParser.nextToken() == JsonToken.VALUE_STRING && "href".equals(linkFieldName)) {
+                        nextPageUrl = JsonHandler.toUrl(jsonParser.getText()).orElse(null);
+                    } else {
+                        jsonParser.skipChildren();
+                    }
+                }
+            } else {
+                jsonParser.skipChildren();
+            }
+        }
+    }
+
+    private void readPageMetadata() throws IOException {
+        while (jsonParser.nextToken() == JsonToken.FIELD_NAME) {
+            String metadataName = jsonParser.getCurrentName();
+            JsonToken valueToken = jsonParser.nextToken();
+            if (valueToken == JsonToken.VALUE_NUMBER_INT && "number".equals(metadataName)) {
+                pageNumber = jsonParser.getIntValue();
+            } else if (valueToken == JsonToken.VALUE_NUMBER_INT && "totalPages".equals(metadataName)) {
+                totalPages = jsonParser.getIntValue();
+            } else {
+                jsonParser.skipChildren();
+            }
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package util.metrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/*
+ * Lock free latency histogram with a fixed memory footprint, in the style of HdrHistogram.
+ * Values are kept in microseconds, every power of two is split into 32 linear buckets above 64 microseconds, so any recorded value
+ * is reported with an error below about 3%. Values above an hour end up in the last bucket, the maximum is exact.
+ */
+public final class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 6;
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+    private static final long HIGHEST_TRACKABLE_MICROSECONDS = TimeUnit.HOURS.toMicros(1);
+    private static final int BUCKET_COUNT = getBucketIndex(HIGHEST_TRACKABLE_MICROSECONDS) + 1;
+
+    private final AtomicLongArray bucketCounts = new AtomicLongArray(BUCKET_COUNT);
+    private final AtomicLong totalCount = new AtomicLong();
+    private final AtomicLong totalMicroseconds = new AtomicLong();
+    private final AtomicLong maximumMicroseconds = new AtomicLong();
+
+    public void record(long durationNanoseconds) {
+        long durationMicroseconds = Math.max(0, TimeUnit.NANOSECONDS.toMicros(durationNanoseconds));
+        bucketCounts.incrementAndGet(getBucketIndex(Math.min(durationMicroseconds, HIGHEST_TRACKABLE_MICROSECONDS)));
+        totalCount.incrementAndGet();
+        totalMicroseconds.addAndGet(durationMicroseconds);
+        maximumMicroseconds.accumulateAndGet(durationMicroseconds, Math::max);
+    }
+
+    public long getCount() {
+        return totalCount.get();
+    }
+
+    public long getTotalMicroseconds() {
+        return totalMicroseconds.get();
+    }
+
+    public long getMaximumMicroseconds() {
+        return maximumMicroseconds.get();
+    }
+
+    /*
+     * Upper bound of the bucket holding the requested percentile, never above the recorded maximum.
+     */
+    public long getPercentileMicroseconds(double percentile) {
+        long count = totalCount.get();
+        if (count == 0) {
+            return 0;
+        }
+        long targetCount = Math.max(1, (long) Math.ceil(count * percentile / 100.0));
+        long seenCount = 0;
+        for (int bucketIndex = 0; bucketIndex < BUCKET_COUNT; bucketIndex++) {
+            seenCount += bucketCounts.get(bucketIndex);
+            if (seenCount >= targetCount) {
+                return Math.min(getBucketUpperBound(bucketIndex), maximumMicroseconds.get());
+            }
+        }
+        return maximumMicroseconds.get();
+    }
+
+    private static int getBucketIndex(long value) {
+        if (value < SUB_BUCKET_COUNT) {
+            return (int) value;
+        }
+        int magnitude = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS + 1;
+        int subBucket = (int) (value >>> magnitude) - SUB_BUCKET_COUNT / 2;
+        return SUB_BUCKET_COUNT + (magnitude - 1) * (SUB_BUCKET_COUNT / 2) + subBucket;
+    }
+
+    private static long getBucketUpperBound(int bucketIndex) {
+        if (bucketIndex < SUB_BUCKET_COUNT) {
+            return bucketIndex;
+        }
+        int magnitude = (bucketIndex - SUB_BUCKET_COUNT) / (SUB_BUCKET_COUNT / 2) + 1;
+        int subBucket = (bucketIndex - SUB_BUCKET_COUNT) % (SUB_BUCKET_COUNT / 2) + SUB_BUCKET_COUNT / 2;
+        return ((long) (subBucket + 1) << magnitude) - 1;
+    }
+}
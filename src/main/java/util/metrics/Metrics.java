@@ -0,0 +1,120 @@
+package util.metrics;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import util.Logger;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/*
+ * Process wide latency histograms, one per phase of a run.
+ * Recording is always on and only costs a few atomic increments, the histograms are only written when asked for.
+ */
+public final class Metrics {
+    public static final String API_REQUEST = "api_request";
+    public static final String LOGIN = "login";
+    public static final String SESSION_CHECK = "session_check";
+    public static final String OPEN_SETTINGS = "open_settings";
+    public static final String BRANCH_LIST_LOAD = "branch_list_load";
+    public static final String SAVE = "save";
+    public static final String SCRIPTED_UPDATE = "scripted_update";
+
+    public static final String PROMETHEUS_FILE_NAME = "metrics.prom";
+    public static final String JSON_SUMMARY_FILE_NAME = "metrics.json";
+
+    private static final String METRIC_NAME = "sca_default_branch_phase_duration_seconds";
+    private static final double[] PERCENTILES = {50, 95, 99};
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+    private static final Map<String, LatencyHistogram> histograms = new ConcurrentHashMap<>();
+
+    private Metrics() {
+        throw new IllegalStateException("This class should not be instantiated");
+    }
+
+    /*
+     * Records the time elapsed since a System.nanoTime() reading.
+     */
+    public static void recordSince(String phase, long startNanoseconds) {
+        getHistogram(phase).record(System.nanoTime() - startNanoseconds);
+    }
+
+    public static LatencyHistogram getHistogram(String phase) {
+        return histograms.computeIfAbsent(phase, newPhase -> new LatencyHistogram());
+    }
+
+    /*
+     * Writes a Prometheus text exposition file and a JSON summary into the given directory.
+     */
+    public static void export(Path outputDirectory) {
+        Map<String, LatencyHistogram> sortedHistograms = new TreeMap<>(histograms);
+        try {
+            Files.createDirectories(outputDirectory);
+            writePrometheus(outputDirectory.resolve(PROMETHEUS_FILE_NAME), sortedHistograms);
+            writeJsonSummary(outputDirectory.resolve(JSON_SUMMARY_FILE_NAME), sortedHistograms);
+            Logger.log("Metrics written to " + outputDirectory);
+        } catch (IOException e) {
+            Logger.log("Unable to write metrics to " + outputDirectory);
+            Logger.debug(e::printStackTrace);
+        }
+    }
+
+    private static void writePrometheus(Path prometheusFile, Map<String, LatencyHistogram> sortedHistograms)
+            throws IOException {
+        try (BufferedWriter writer = Files.newBufferedWriter(prometheusFile, StandardCharsets.UTF_8)) {
+            writer.write("# HELP " + METRIC_NAME + " Duration of each phase of the default branch update\n");
+            writer.write("# TYPE " + METRIC_NAME + " summary\n");
+            for (Map.Entry<String, LatencyHistogram> phaseHistogram : sortedHistograms.entrySet()) {
+                String phase = phaseHistogram.getKey();
+                LatencyHistogram histogram = phaseHistogram.getValue();
+                for (double percentile : PERCENTILES) {
+                    writer.write(METRIC_NAME + "{phase=\"" + phase + "\",quantile=\"" + percentile / 100 + "\"} " +
+                            toSeconds(histogram.getPercentileMicroseconds(percentile)) + "\n");
+                }
+                writer.write(METRIC_NAME + "{phase=\"" + phase + "\",quantile=\"1.0\"} " +
+                        toSeconds(histogram.getMaximumMicroseconds()) + "\n");
+                writer.write(METRIC_NAME + "_sum{phase=\"" + phase + "\"} " +
+                        toSeconds(histogram.getTotalMicroseconds()) + "\n");
+                writer.write(METRIC_NAME + "_count{phase=\"" + phase + "\"} " + histogram.getCount() + "\n");
+            }
+        }
+    }
+
+    private static void writeJsonSummary(Path jsonSummaryFile, Map<String, LatencyHistogram> sortedHistograms)
+            throws IOException {
+        try (OutputStream outputStream = Files.newOutputStream(jsonSummaryFile);
+             JsonGenerator generator = JSON_FACTORY.createGenerator(outputStream, JsonEncoding.UTF8)) {
+            generator.useDefaultPrettyPrinter();
+            generator.writeStartObject();
+            for (Map.Entry<String, LatencyHistogram> phaseHistogram : sortedHistograms.entrySet()) {
+                LatencyHistogram histogram = phaseHistogram.getValue();
+                generator.writeObjectFieldStart(phaseHistogram.getKey());
+                generator.writeNumberField("count", histogram.getCount());
+                generator.writeNumberField("total_ms", toMilliseconds(histogram.getTotalMicroseconds()));
+                for (double percentile : PERCENTILES) {
+                    generator.writeNumberField("p" + (int) percentile + "_ms",
+                            toMilliseconds(histogram.getPercentileMicroseconds(percentile)));
+                }
+                generator.writeNumberField("max_ms", toMilliseconds(histogram.getMaximumMicroseconds()));
+                generator.writeEndObject();
+            }
+            generator.writeEndObject();
+        }
+    }
+
+    private static double toSeconds(long microseconds) {
+        return microseconds / 1_000_000.0;
+    }
+
+    private static double toMilliseconds(long microseconds) {
+        return microseconds / 1_000.0;
+    }
+}
@@ -0,0 +1,149 @@
+package selenium;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import util.ApiCredentials;
+import util.Project;
+import util.Workspace;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/*
+ * Runs the API updater against a local stub of the default branch endpoints, pointed at through
+ * veracode.api.base_url. The property is read once, so it is set before ApiCaller is first used.
+ */
+class ApiDefaultBranchUpdaterTest {
+    private static final String WORKSPACE_GUID = "workspace-guid";
+    private static final ApiCredentials API_CREDENTIALS =
+            new ApiCredentials("api-id", "0123456789abcdef0123456789abcdef");
+
+    private static HttpServer stubServer;
+    private static final Map<String, String> defaultBranchByProjectGuid = new ConcurrentHashMap<>();
+    private static final Map<String, Integer> putResponseByProjectGuid = new ConcurrentHashMap<>();
+    private static final List<String> requests = new CopyOnWriteArrayList<>();
+
+    @BeforeAll
+    static void startStubServer() throws IOException {
+        stubServer = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        stubServer.createContext("/srcclr/v3/workspaces/" + WORKSPACE_GUID + "/projects/",
+                ApiDefaultBranchUpdaterTest::handleProjectRequest);
+        stubServer.start();
+        System.setProperty("veracode.api.base_url",
+                "http://localhost:" + stubServer.getAddress().getPort() + "/srcclr");
+    }
+
+    @AfterAll
+    static void stopStubServer() {
+        stubServer.stop(0);
+    }
+
+    @BeforeEach
+    void resetStub() {
+        defaultBranchByProjectGuid.clear();
+        putResponseByProjectGuid.clear();
+        requests.clear();
+    }
+
+    @Test
+    void updatesAndReadsBackTheBranchOn200() {
+        ApiDefaultBranchUpdater apiUpdater = new ApiDefaultBranchUpdater(API_CREDENTIALS);
+        defaultBranchByProjectGuid.put("p1", "develop");
+        putResponseByProjectGuid.put("p1", 200);
+
+        assertEquals(UpdateResult.UPDATED, apiUpdater.updateDefaultBranch(newProject("p1"), "main"));
+        assertEquals("main", defaultBranchByProjectGuid.get("p1"));
+        assertEquals(List.of("GET p1", "PUT p1", "GET p1"), requests);
+    }
+
+    @Test
+    void leavesProjectsAlreadyOnTheBranchUnchanged() {
+        ApiDefaultBranchUpdater apiUpdater = new ApiDefaultBranchUpdater(API_CREDENTIALS);
+        defaultBranchByProjectGuid.put("p1", "main");
+
+        assertEquals(UpdateResult.UNCHANGED, apiUpdater.updateDefaultBranch(newProject("p1"), "main"));
+        assertEquals(List.of("GET p1"), requests);
+    }
+
+    @Test
+    void onlyFailsTheProjectOn404() {
+        ApiDefaultBranchUpdater apiUpdater = new ApiDefaultBranchUpdater(API_CREDENTIALS);
+        putResponseByProjectGuid.put("p1", 404);
+        defaultBranchByProjectGuid.put("p2", "develop");
+        putResponseByProjectGuid.put("p2", 200);
+
+        Project missingProject = newProject("p1");
+        assertEquals(UpdateResult.FAILED, apiUpdater.updateDefaultBranch(missingProject, "main"));
+        assertTrue(missingProject.getIssueOnUpdate().contains("HTTP 404"));
+        assertTrue(apiUpdater.isSupported());
+        assertEquals(UpdateResult.UPDATED, apiUpdater.updateDefaultBranch(newProject("p2"), "main"));
+    }
+
+    @Test
+    void stopsUsingTheApiOn405() {
+        ApiDefaultBranchUpdater apiUpdater = new ApiDefaultBranchUpdater(API_CREDENTIALS);
+        defaultBranchByProjectGuid.put("p1", "develop");
+        putResponseByProjectGuid.put("p1", 405);
+
+        assertEquals(UpdateResult.UNSUPPORTED, apiUpdater.updateDefaultBranch(newProject("p1"), "main"));
+        assertFalse(apiUpdater.isSupported());
+        requests.clear();
+        assertEquals(UpdateResult.UNSUPPORTED, apiUpdater.updateDefaultBranch(newProject("p2"), "main"));
+        assertEquals(List.of(), requests);
+    }
+
+    private static Project newProject(String projectGuid) {
+        Workspace workspace = new Workspace(WORKSPACE_GUID, "workspace-site-id", "workspace", new ArrayList<>());
+        return new Project(projectGuid, projectGuid + "-site-id", projectGuid, "Java", workspace);
+    }
+
+    /*
+     * GET .../projects/{guid} returns the project with its default branch, or 404 for an unknown project.
+     * PUT .../projects/{guid}/default_branch answers with the status set for the project, and stores the branch on 2xx.
+     */
+    private static void handleProjectRequest(HttpExchange exchange) throws IOException {
+        String[] pathSegments = exchange.getRequestURI().getPath().split("/");
+        int projectsIndex = List.of(pathSegments).indexOf("projects");
+        String projectGuid = pathSegments[projectsIndex + 1];
+        requests.add(exchange.getRequestMethod() + " " + projectGuid);
+        try (exchange) {
+            if ("PUT".equals(exchange.getRequestMethod())) {
+                int responseCode = putResponseByProjectGuid.getOrDefault(projectGuid, 404);
+                if (responseCode >= 200 && responseCode < 300) {
+                    defaultBranchByProjectGuid.put(projectGuid, readBranchName(exchange.getRequestBody()));
+                }
+                exchange.sendResponseHeaders(responseCode, -1);
+                return;
+            }
+            String defaultBranch = defaultBranchByProjectGuid.get(projectGuid);
+            if (defaultBranch == null) {
+                exchange.sendResponseHeaders(404, -1);
+                return;
+            }
+            byte[] body = ("{\"id\":\"" + projectGuid + "\",\"default_branch\":\"" + defaultBranch + "\"}")
+                    .getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(200, body.length);
+            exchange.getResponseBody().write(body);
+        }
+    }
+
+    private static String readBranchName(InputStream requestBody) throws IOException {
+        String json = new String(requestBody.readAllBytes(), StandardCharsets.UTF_8);
+        return json.replaceAll(".*\"default_branch\"\\s*:\\s*\"([^\"]*)\".*", "$1");
+    }
+}
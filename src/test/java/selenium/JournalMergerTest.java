@@ -0,0 +1,41 @@
+package selenium;
+
+import executionparameters.MergeParameters;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import util.Project;
+import util.Workspace;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+class JournalMergerTest {
+    @TempDir
+    Path journalDirectory;
+
+    @Test
+    void replacesThePreviousMergedJournal() throws Exception {
+        Path firstShardJournal = journalDirectory.resolve("shard-1.tsv");
+        Path secondShardJournal = journalDirectory.resolve("shard-2.tsv");
+        Path mergedJournal = journalDirectory.resolve("merged.tsv");
+        Workspace workspace = new Workspace("workspace-guid", "workspace-site-id", "workspace", new ArrayList<>());
+        try (UpdateJournal updateJournal = UpdateJournal.open(firstShardJournal)) {
+            updateJournal.record(new Project("p1", "p1-site-id", "one", "Java", workspace), "main", UpdateResult.UPDATED);
+        }
+        try (UpdateJournal updateJournal = UpdateJournal.open(secondShardJournal)) {
+            updateJournal.record(new Project("p2", "p2-site-id", "two", "Java", workspace), "main", UpdateResult.UNCHANGED);
+        }
+        MergeParameters mergeParameters = MergeParameters.of(new String[]{
+                "-mj", firstShardJournal + "," + secondShardJournal, "-j", mergedJournal.toString()}).orElseThrow();
+
+        JournalMerger.merge(mergeParameters);
+        JournalMerger.merge(mergeParameters);
+
+        assertEquals(2, UpdateJournal.read(mergedJournal).size());
+        assertFalse(Files.exists(journalDirectory.resolve("merged.tsv.tmp")));
+    }
+}
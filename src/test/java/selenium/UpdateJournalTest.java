@@ -0,0 +1,37 @@
+package selenium;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import util.Project;
+import util.Workspace;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class UpdateJournalTest {
+    @TempDir
+    Path journalDirectory;
+
+    @Test
+    void keepsIssuesWithLineBreaksOnASingleLine() throws Exception {
+        Path journalPath = journalDirectory.resolve("journal.tsv");
+        Workspace workspace = new Workspace("workspace-guid", "workspace-site-id", "workspace", new ArrayList<>());
+        Project failedProject = new Project("p1", "p1-site-id", "one", "Java", workspace);
+        failedProject.setIssueOnUpdate("Unable to update project: one\r\nWith page source: <html>\r</html>\t\\");
+        Project updatedProject = new Project("p2", "p2-site-id", "two", "Java", workspace);
+
+        try (UpdateJournal updateJournal = UpdateJournal.open(journalPath)) {
+            updateJournal.record(failedProject, "main", UpdateResult.FAILED);
+            updateJournal.record(updatedProject, "main", UpdateResult.UPDATED);
+        }
+
+        List<UpdateJournal.Entry> entries = UpdateJournal.read(journalPath);
+        assertEquals(2, entries.size());
+        assertEquals(failedProject.getIssueOnUpdate(), entries.get(0).getIssue());
+        assertEquals(UpdateResult.FAILED, entries.get(0).getUpdateResult());
+        assertEquals("p2", entries.get(1).getProjectGuid());
+    }
+}
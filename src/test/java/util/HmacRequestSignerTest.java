@@ -0,0 +1,47 @@
+package util;
+
+import org.junit.jupiter.api.Test;
+
+import java.net.URL;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+/*
+ * Known answers produced by the original static signer (javax.xml.bind hex encoding, a new Mac per step)
+ * for a fixed key, timestamp, nonce and URL. The reusable signer has to produce the same headers byte for byte.
+ */
+class HmacRequestSignerTest {
+    private static final ApiCredentials API_CREDENTIALS =
+            new ApiCredentials("vcode-api-id", "0123456789ABCDEF0123456789abcdef");
+    private static final String TIMESTAMP = "1700000000000";
+    private static final byte[] NONCE = {0, 1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13, 14, 15};
+
+    @Test
+    void signsRequestsWithQueryLikeTheOriginalSigner() throws Exception {
+        URL url = new URL("https://api.veracode.com/srcclr/v3/workspaces?size=500&page=1");
+
+        assertEquals("VERACODE-HMAC-SHA-256 id=vcode-api-id,ts=1700000000000," +
+                        "nonce=000102030405060708090a0b0c0d0e0f," +
+                        "sig=e81b6a06b07c1115efe772f74bd0c3ad0db2e5362d1b086b297740162239e7ee",
+                new HmacRequestSigner(API_CREDENTIALS).getAuthorizationHeader(url, "GET", TIMESTAMP, NONCE));
+    }
+
+    @Test
+    void signsRequestsWithoutQueryLikeTheOriginalSigner() throws Exception {
+        URL url = new URL("https://api.veracode.com/srcclr/v3/workspaces/g/projects/p/default_branch");
+
+        assertEquals("VERACODE-HMAC-SHA-256 id=vcode-api-id,ts=1700000000000," +
+                        "nonce=000102030405060708090a0b0c0d0e0f," +
+                        "sig=ba3bf88b14a8e71ae674f4673ee77616982708306ab6adabdd9eeeb416cc5f8b",
+                new HmacRequestSigner(API_CREDENTIALS).getAuthorizationHeader(url, "PUT", TIMESTAMP, NONCE));
+    }
+
+    @Test
+    void usesAFreshNonceForEveryRequest() throws Exception {
+        HmacRequestSigner requestSigner = new HmacRequestSigner(API_CREDENTIALS);
+        URL url = new URL("https://api.veracode.com/srcclr/v3/workspaces");
+
+        assertNotEquals(requestSigner.getAuthorizationHeader(url, "GET"), requestSigner.getAuthorizationHeader(url, "GET"));
+    }
+}